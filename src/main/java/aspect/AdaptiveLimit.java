@@ -0,0 +1,171 @@
+package aspect;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit following the latency of the database, in the manner of a gradient limiter.
+ * Calls report their wait for a connection and their mean statement time when they release
+ * their slot. Once per window the average latency of the window, wait included (short latency),
+ * is compared with a slow moving average of the statement time alone (long latency):
+ * <pre>
+ * gradient = clamp(tolerance * long / short, 0.5, 1)
+ * limit    = limit * gradient + sqrt(limit)
+ * </pre>
+ * The baseline follows a database that became uniformly slower, but never absorbs queueing for
+ * connections: while calls barely wait the limit grows by a small queue allowance, and once
+ * they queue it shrinks in proportion. A window in which a call failed for overload, such as a
+ * rejected or timed out connection, cuts the limit by a fixed factor instead. New limits are
+ * smoothed into the old one, and the limit only grows when calls used more than half of it.
+ */
+final class AdaptiveLimit {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // Shortest sampling window
+    private static final int WINDOW_MIN_SAMPLES = 5; // Fewest samples closing a window without overload
+    private static final double LONG_SMOOTHING = 2.0 / (100 + 1); // Long latency averages about 100 windows
+    private static final double SMOOTHING = 0.2; // Weight of a new limit against the current one
+    private static final double BACKOFF = 0.9; // Decrease of the limit after an overload
+
+    private final double tolerance; // Ratio of short to long latency still considered healthy
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier clock; // Source of nanoTime, replaced in tests
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Current window and long latency, guarded by this
+    private long windowStart;
+    private long windowWaitNanos;
+    private long windowStatementNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowOverloaded;
+    private double longLatency; // 0 until the first window closes
+
+    /**
+     * Create a limit.
+     *
+     * @param initialLimit concurrency admitted before any latency is known
+     * @param minLimit     lowest limit
+     * @param maxLimit     highest limit
+     * @param tolerance    ratio of short to long latency at which the limit stops growing
+     */
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this(initialLimit, minLimit, maxLimit, tolerance, System::nanoTime);
+    }
+
+    /**
+     * Create a limit that reads the time from the given clock.
+     *
+     * @param initialLimit concurrency admitted before any latency is known
+     * @param minLimit     lowest limit
+     * @param maxLimit     highest limit
+     * @param tolerance    ratio of short to long latency at which the limit stops growing
+     * @param clock        returns the current time in nanoseconds, like System.nanoTime
+     */
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, LongSupplier clock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.clock = clock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowStart = clock.getAsLong();
+    }
+
+    /**
+     * Take a slot if fewer calls are in flight than the given share of the limit.
+     *
+     * @param share fraction of the limit the caller may use
+     * @return whether a slot was taken; it must then be given back with release
+     */
+    boolean tryAcquire(double share) {
+        int max = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot without a latency sample.
+     *
+     * @param overloaded whether the call failed because the database was overloaded
+     */
+    void release(boolean overloaded) {
+        release(0, -1, overloaded);
+    }
+
+    /**
+     * Give back a slot, recording what the call observed.
+     *
+     * @param waitNanos      time the call waited for connections
+     * @param statementNanos mean time of its statements, or -1 if it ran none
+     * @param overloaded     whether the call failed because the database was overloaded
+     */
+    void release(long waitNanos, long statementNanos, boolean overloaded) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (statementNanos >= 0) {
+                windowWaitNanos += waitNanos;
+                windowStatementNanos += statementNanos;
+                windowSamples++;
+            }
+            windowMaxInFlight = Math.max(windowMaxInFlight, current);
+            windowOverloaded |= overloaded;
+
+            long now = clock.getAsLong();
+            if (now - windowStart >= WINDOW_NANOS && (windowOverloaded || windowSamples >= WINDOW_MIN_SAMPLES)) {
+                update();
+                windowStart = now;
+                windowWaitNanos = 0;
+                windowStatementNanos = 0;
+                windowSamples = 0;
+                windowMaxInFlight = 0;
+                windowOverloaded = false;
+            }
+        }
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Compute the limit from the closed window.
+     */
+    private void update() {
+        double current = limit;
+        double next;
+        if (windowOverloaded) {
+            next = current * BACKOFF;
+        } else {
+            double statementLatency = (double) windowStatementNanos / windowSamples;
+            double shortLatency = (double) (windowWaitNanos + windowStatementNanos) / windowSamples;
+            longLatency = longLatency == 0 ? statementLatency : longLatency + (statementLatency - longLatency) * LONG_SMOOTHING;
+            // Let the baseline come back down quickly once a slow period is over
+            if (longLatency > 2 * shortLatency) {
+                longLatency *= 0.95;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+            next = current * gradient + Math.sqrt(current);
+            if (windowMaxInFlight < current / 2) {
+                // The calls did not need the limit, so the latency says nothing about a higher one
+                next = Math.min(next, current);
+            }
+            next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
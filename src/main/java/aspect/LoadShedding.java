@@ -0,0 +1,34 @@
+package aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets how a transactional service method is admitted by LoadSheddingAspect.
+ * Without it read-only transactions have HIGH priority and the others NORMAL.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LoadShedding {
+
+    /**
+     * Share of the concurrency limit the method may use; lower priorities are shed first.
+     *
+     * @return the priority
+     */
+    Priority value();
+
+    /**
+     * Admission priorities, from shed last to shed first.
+     */
+    enum Priority {
+        /** Cheap reads and toggles. */
+        HIGH,
+        /** Ordinary writes. */
+        NORMAL,
+        /** Expensive calls such as registration and bulk writes. */
+        LOW
+    }
+}
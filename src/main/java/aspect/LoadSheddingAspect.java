@@ -0,0 +1,158 @@
+package aspect;
+
+import exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.sql.SQLTransientException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aspect admitting transactional service calls through an adaptive concurrency limit.
+ * The limit follows the database: each call reports its wait for a connection and its
+ * mean statement time, and the limit shrinks as soon as calls start queueing for
+ * connections or statements slow down suddenly (see AdaptiveLimit). Calls beyond the limit fail at once with
+ * ServiceBusyException (HTTP 503) instead of queueing for a connection.
+ * <p>
+ * Priorities share the limit: HIGH calls may use all of it, NORMAL calls
+ * todolist.loadshed.share.normal of it and LOW calls todolist.loadshed.share.low, so
+ * registration and bulk work are shed first while reads and toggles keep going.
+ * Only the outermost transaction takes a slot; the aspect runs before the transaction
+ * starts, so a shed call never takes a connection.
+ */
+@Component
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE) // Ahead of the transaction interceptor; arguments can therefore not be bound
+public class LoadSheddingAspect {
+
+    private final boolean enabled; // Whether calls are limited at all
+    private final AdaptiveLimit limit; // Concurrency limit shared by all priorities
+    private final Map<LoadShedding.Priority, Double> shares = new EnumMap<>(LoadShedding.Priority.class); // Fraction of the limit per priority
+    private final Map<LoadShedding.Priority, Counter> rejections = new EnumMap<>(LoadShedding.Priority.class); // Shed calls per priority
+
+    private final Map<Method, Admission> admissions = new ConcurrentHashMap<>(); // Admission settings per method
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param meterRegistry the MeterRegistry to publish the limit to
+     * @param enabled       whether calls are limited
+     * @param initialLimit  concurrency admitted before any latency is known
+     * @param minLimit      lowest limit
+     * @param maxLimit      highest limit
+     * @param tolerance     ratio of current to baseline latency at which the limit stops growing
+     * @param normalShare   fraction of the limit NORMAL calls may use
+     * @param lowShare      fraction of the limit LOW calls may use
+     */
+    public LoadSheddingAspect(MeterRegistry meterRegistry,
+                              @Value("${todolist.loadshed.enabled:true}") boolean enabled,
+                              @Value("${todolist.loadshed.initial-limit:20}") int initialLimit,
+                              @Value("${todolist.loadshed.min-limit:4}") int minLimit,
+                              @Value("${todolist.loadshed.max-limit:200}") int maxLimit,
+                              @Value("${todolist.loadshed.tolerance:1.5}") double tolerance,
+                              @Value("${todolist.loadshed.share.normal:0.8}") double normalShare,
+                              @Value("${todolist.loadshed.share.low:0.5}") double lowShare) {
+        this.enabled = enabled;
+        this.limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit, tolerance);
+        shares.put(LoadShedding.Priority.HIGH, 1.0);
+        shares.put(LoadShedding.Priority.NORMAL, normalShare);
+        shares.put(LoadShedding.Priority.LOW, lowShare);
+
+        Gauge.builder("todolist.loadshed.limit", limit, AdaptiveLimit::getLimit)
+                .description("Concurrency limit of service transactions")
+                .register(meterRegistry);
+        Gauge.builder("todolist.loadshed.inflight", limit, AdaptiveLimit::getInFlight)
+                .description("Service transactions in progress")
+                .register(meterRegistry);
+        for (LoadShedding.Priority priority : LoadShedding.Priority.values()) {
+            rejections.put(priority, Counter.builder("todolist.loadshed.rejected")
+                    .description("Service calls shed by the concurrency limit")
+                    .tags("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Around advice admitting a transactional service call.
+     *
+     * @param joinPoint the join point representing the call
+     * @return the result of the call
+     * @throws Throwable if the call throws an exception, or ServiceBusyException if it is shed
+     */
+    @Around("execution(* service.*.*(..)) && @annotation(org.springframework.transaction.annotation.Transactional)")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Nested calls run in the slot of the transaction that called them
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Admission admission = admissions.computeIfAbsent(method, Admission::new);
+        if (!limit.tryAcquire(shares.get(admission.priority))) {
+            rejections.get(admission.priority).increment();
+            throw new ServiceBusyException("service is overloaded, retry later");
+        }
+
+        boolean overloaded = false;
+        QueryStats stats = QueryStats.start();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            overloaded = isOverload(e);
+            throw e;
+        } finally {
+            stats.close();
+            // Calls answered from caches tell nothing about the database
+            if (stats.getStatements() > 0) {
+                limit.release(stats.getConnectionNanos(), stats.getJdbcNanos() / stats.getStatements(), overloaded);
+            } else {
+                limit.release(overloaded);
+            }
+        }
+    }
+
+    /**
+     * Check whether a call failed because the database could not keep up: a connection
+     * was refused by BoundedDataSource, or a connection or statement timed out.
+     */
+    private static boolean isOverload(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ServiceBusyException || cause instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Admission settings of a single method.
+     */
+    private static final class Admission {
+
+        private final LoadShedding.Priority priority;
+
+        private Admission(Method method) {
+            LoadShedding loadShedding = method.getAnnotation(LoadShedding.class);
+            Transactional transactional = method.getAnnotation(Transactional.class);
+            if (loadShedding != null) {
+                this.priority = loadShedding.value();
+            } else {
+                this.priority = transactional.readOnly() ? LoadShedding.Priority.HIGH : LoadShedding.Priority.NORMAL;
+            }
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package aspect;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StopWatch;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Aspect class for logging the execution of service and web methods.
- * It logs method start, end, execution time, and exceptions using Log4j2.
+ * Aspect class for timing the execution of service and web methods.
+ * Timings are recorded into lock-free per-method accumulators and written
+ * as one aggregated line per method every reporting interval, instead of
+ * two log lines per call. Exceptions are still logged as they happen.
+ * Each method also feeds a Micrometer timer (todolist.method) with a latency
+ * histogram and an error counter by exception type (todolist.method.errors).
  */
 @Component
 @Aspect
@@ -24,8 +36,28 @@ public class LogAspect {
     private final Logger log4j = LogManager.getLogger(LogAspect.class);
 
     /**
-     * Around advice to log the execution of methods in web and service packages.
-     * Logs the method start, execution time, successful completion, and exceptions.
+     * Accumulated timings per intercepted method.
+     */
+    private final Map<Method, MethodTimings> timings = new ConcurrentHashMap<>();
+
+    /**
+     * Registry receiving the per-method timers and error counters.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param meterRegistry the MeterRegistry to publish method metrics to
+     */
+    public LogAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Around advice to time the execution of methods in web and service packages.
+     * Records the execution time and outcome of the call; per-call lines are only
+     * written when DEBUG is enabled for this aspect.
      *
      * @param joinPoint the join point representing the method being executed
      * @return the result of the method execution
@@ -33,40 +65,91 @@ public class LogAspect {
      */
     @Around("execution(* web.*.*(..)) || execution(* service.*.*(..))")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodTimings methodTimings = timings.computeIfAbsent(method, m -> new MethodTimings(m, meterRegistry));
 
-        // Create a stopwatch to measure execution time
-        StopWatch stopWatch = new StopWatch();
-        Object result;
-
+        long start = System.nanoTime();
         try {
-            // Log method start
-            log4j.info(joinPoint.getSignature().getName() + " started");
-
-            // Start measuring time
-            stopWatch.start();
-
-            // Proceed with the method execution
-            result = joinPoint.proceed();
-
+            return joinPoint.proceed();
         } catch (Throwable e) {
-            // Stop the stopwatch if an exception occurs
-            stopWatch.stop();
+            methodTimings.errors.increment();
+            meterRegistry.counter("todolist.method.errors",
+                    "layer", methodTimings.layer,
+                    "class", methodTimings.className,
+                    "method", methodTimings.methodName,
+                    "exception", e.getClass().getSimpleName()).increment();
 
             // Log the exception message
-            log4j.error(e.getMessage());
+            log4j.error("{} failed: {}", methodTimings.name, e.getMessage());
 
             // Rethrow the exception to propagate it
             throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            methodTimings.record(elapsed);
+            if (log4j.isDebugEnabled()) {
+                log4j.debug("{} run in {} us", methodTimings.name, TimeUnit.NANOSECONDS.toMicros(elapsed));
+            }
         }
+    }
+
+    /**
+     * Write one aggregated line per method called since the last report, then reset it.
+     */
+    @Scheduled(fixedDelayString = "${todolist.timing.report-interval:60000}")
+    public void report() {
+        for (MethodTimings methodTimings : timings.values()) {
+            long calls = methodTimings.calls.sumThenReset();
+            if (calls == 0) {
+                continue;
+            }
+            long totalNanos = methodTimings.totalNanos.sumThenReset();
+            long maxNanos = methodTimings.maxNanos.getThenReset();
+            long errors = methodTimings.errors.sumThenReset();
+
+            log4j.info("{} calls={} avg={} ms max={} ms errors={}", methodTimings.name, calls,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos / calls),
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos), errors);
+        }
+    }
 
-        // Stop the stopwatch after successful execution
-        stopWatch.stop();
+    /**
+     * Lock-free timing accumulator of a single method.
+     */
+    private static final class MethodTimings {
+
+        // Package, class and method name, built once per method
+        private final String layer;
+        private final String className;
+        private final String methodName;
+        private final String name;
+
+        // Latency histogram published to the MeterRegistry
+        private final Timer timer;
 
-        // Log method completion and execution time in milliseconds
-        log4j.info(joinPoint.getSignature().getName() + " run successfully in " +
-                stopWatch.getTotalTime(TimeUnit.MILLISECONDS) + " ms");
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder errors = new LongAdder();
 
-        // Return the result of the method
-        return result;
+        private MethodTimings(Method method, MeterRegistry meterRegistry) {
+            this.layer = method.getDeclaringClass().getPackageName();
+            this.className = method.getDeclaringClass().getSimpleName();
+            this.methodName = method.getName();
+            this.name = className + "." + methodName;
+            this.timer = Timer.builder("todolist.method")
+                    .description("Execution time of web and service methods")
+                    .tags("layer", layer, "class", className, "method", methodName)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private void record(long elapsedNanos) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            calls.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
     }
 }
@@ -0,0 +1,185 @@
+package aspect;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aspect counting the SQL statements, fetched rows and JDBC time of every controller handler.
+ * The counts are published per handler as todolist.sql.* metrics and, with
+ * todolist.sql.headers=true as in the dev and test profiles, returned in the
+ * X-SQL-Statements, X-SQL-Rows and X-SQL-Time-Ms response headers.
+ * <p>
+ * A handler executing the same statement shape todolist.sql.repeat-threshold times or more,
+ * the usual sign of a lazily loaded collection in a loop, is logged and counted, as is one
+ * going over its StatementBudget. With todolist.sql.enforce=true both fail the request.
+ * Statements are counted through QueryCountingDataSource; work a handler hands to another
+ * thread, such as a streamed response body, is not included.
+ */
+@Component
+@Aspect
+public class QueryCountAspect {
+
+    private final Logger log4j = LogManager.getLogger(QueryCountAspect.class);
+
+    private final MeterRegistry meterRegistry; // Registry receiving the per-handler metrics
+    private final boolean headers; // Whether the counts are returned as response headers
+    private final int repeatThreshold; // Executions of one statement shape reported as N+1
+    private final int defaultBudget; // Statement budget of handlers without StatementBudget, 0 for none
+    private final boolean enforce; // Whether a violation fails the request
+
+    private final Map<Method, HandlerMeters> meters = new ConcurrentHashMap<>(); // Metrics per handler
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param meterRegistry   the MeterRegistry to publish the metrics to
+     * @param headers         whether the counts are returned as response headers
+     * @param repeatThreshold executions of one statement shape reported as N+1
+     * @param defaultBudget   statement budget of handlers without StatementBudget, 0 for none
+     * @param enforce         whether a violation fails the request
+     */
+    public QueryCountAspect(MeterRegistry meterRegistry,
+                            @Value("${todolist.sql.headers:false}") boolean headers,
+                            @Value("${todolist.sql.repeat-threshold:5}") int repeatThreshold,
+                            @Value("${todolist.sql.budget:0}") int defaultBudget,
+                            @Value("${todolist.sql.enforce:false}") boolean enforce) {
+        this.meterRegistry = meterRegistry;
+        this.headers = headers;
+        this.repeatThreshold = repeatThreshold;
+        this.defaultBudget = defaultBudget;
+        this.enforce = enforce;
+    }
+
+    /**
+     * Around advice recording the statements of a controller handler.
+     *
+     * @param joinPoint the join point representing the handler
+     * @return the result of the handler
+     * @throws Throwable if the handler throws an exception, or an AssertionError for a violation in enforce mode
+     */
+    @Around("execution(* web.*Controller.*(..))")
+    public Object countQueries(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        HandlerMeters handlerMeters = meters.computeIfAbsent(method, m -> new HandlerMeters(m, meterRegistry));
+
+        Object result;
+        try (QueryStats stats = QueryStats.start()) {
+            try {
+                result = joinPoint.proceed();
+            } finally {
+                handlerMeters.record(stats);
+                if (headers) {
+                    writeHeaders(stats);
+                }
+            }
+            check(handlerMeters, method, stats);
+        }
+        return result;
+    }
+
+    /**
+     * Report a repeated statement shape or an exceeded budget, failing in enforce mode.
+     */
+    private void check(HandlerMeters handlerMeters, Method method, QueryStats stats) {
+        Map.Entry<String, Integer> mostRepeated = stats.getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= repeatThreshold) {
+            handlerMeters.repeated.increment();
+            log4j.warn("{} executed the same statement {} times, possible N+1: {}",
+                    handlerMeters.name, mostRepeated.getValue(), mostRepeated.getKey());
+            if (enforce) {
+                stats.assertNoRepeatedStatement(repeatThreshold);
+            }
+        }
+
+        StatementBudget statementBudget = method.getAnnotation(StatementBudget.class);
+        int budget = statementBudget != null ? statementBudget.value() : defaultBudget;
+        if (budget > 0 && stats.getStatements() > budget) {
+            handlerMeters.overBudget.increment();
+            log4j.warn("{} executed {} statements, over its budget of {}", handlerMeters.name, stats.getStatements(), budget);
+            if (enforce) {
+                stats.assertStatementsAtMost(budget);
+            }
+        }
+    }
+
+    /**
+     * Add the counts to the response, unless it is already on its way to the client.
+     */
+    private static void writeHeaders(QueryStats stats) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        HttpServletResponse response = attributes.getResponse();
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        response.setHeader("X-SQL-Statements", Integer.toString(stats.getStatements()));
+        response.setHeader("X-SQL-Rows", Long.toString(stats.getRows()));
+        response.setHeader("X-SQL-Time-Ms", String.format(Locale.ROOT, "%.3f", stats.getJdbcNanos() / 1_000_000.0));
+    }
+
+    /**
+     * Metrics of a single handler.
+     */
+    private static final class HandlerMeters {
+
+        private final String name; // Class and method name, for log lines
+
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+        private final Timer jdbcTime;
+        private final Counter repeated;
+        private final Counter overBudget;
+
+        private HandlerMeters(Method method, MeterRegistry meterRegistry) {
+            String className = method.getDeclaringClass().getSimpleName();
+            String methodName = method.getName();
+            this.name = className + "." + methodName;
+            this.statements = DistributionSummary.builder("todolist.sql.statements")
+                    .description("SQL statements executed per call of a controller handler")
+                    .tags("class", className, "method", methodName)
+                    .register(meterRegistry);
+            this.rows = DistributionSummary.builder("todolist.sql.rows")
+                    .description("Rows fetched per call of a controller handler")
+                    .tags("class", className, "method", methodName)
+                    .register(meterRegistry);
+            this.jdbcTime = Timer.builder("todolist.sql.time")
+                    .description("Time spent in JDBC per call of a controller handler")
+                    .tags("class", className, "method", methodName)
+                    .register(meterRegistry);
+            this.repeated = Counter.builder("todolist.sql.repeated")
+                    .description("Calls executing one statement shape repeatedly, a possible N+1")
+                    .tags("class", className, "method", methodName)
+                    .register(meterRegistry);
+            this.overBudget = Counter.builder("todolist.sql.over.budget")
+                    .description("Calls executing more statements than their budget")
+                    .tags("class", className, "method", methodName)
+                    .register(meterRegistry);
+        }
+
+        private void record(QueryStats stats) {
+            statements.record(stats.getStatements());
+            rows.record(stats.getRows());
+            jdbcTime.record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
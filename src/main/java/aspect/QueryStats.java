@@ -0,0 +1,202 @@
+package aspect;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * SQL statements, rows, JDBC time and connection wait recorded on the current thread between
+ * start() and close(). QueryCountAspect opens one around every controller handler and
+ * LoadSheddingAspect one around every admitted transaction; integration tests can open their
+ * own around a call and assert on it:
+ * <pre>
+ * try (QueryStats stats = QueryStats.start()) {
+ *     mockMvc.perform(get("/todolists"));
+ *     stats.assertStatementsAtMost(2).assertNoRepeatedStatement(3);
+ * }
+ * </pre>
+ * Scopes nest: a statement is recorded in every open scope of the thread. Statements run on
+ * other threads, such as the body of a streamed response, are not recorded.
+ */
+public final class QueryStats implements AutoCloseable {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    // Literals and parameter lists that vary between statements of the same shape
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    // Shapes by SQL text; prepared statements repeat the same few texts, so folding runs once per text
+    private static final Cache<String, String> SHAPES = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    private final QueryStats parent; // Enclosing scope, also recording this scope's statements
+
+    private int statements;
+    private long rows;
+    private long jdbcNanos;
+    private long connectionNanos;
+    private final Map<String, Integer> shapes = new LinkedHashMap<>(); // Executions per statement shape
+
+    private QueryStats(QueryStats parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Open a scope on the current thread.
+     *
+     * @return the scope, to be closed on the same thread
+     */
+    public static QueryStats start() {
+        QueryStats stats = new QueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Get the innermost open scope of the current thread.
+     *
+     * @return the scope, or null if none is open
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Close the scope, making the enclosing scope current again.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+
+    /**
+     * Record an executed statement.
+     *
+     * @param sql         the SQL text, or null if unknown
+     * @param elapsedNanos time spent executing it
+     */
+    public void recordStatement(String sql, long elapsedNanos) {
+        String shape = shapeOf(sql);
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            stats.statements++;
+            stats.jdbcNanos += elapsedNanos;
+            stats.shapes.merge(shape, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Record time spent fetching rows of a result set.
+     *
+     * @param fetchedRows  rows fetched
+     * @param elapsedNanos time spent fetching them
+     */
+    public void recordRows(long fetchedRows, long elapsedNanos) {
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            stats.rows += fetchedRows;
+            stats.jdbcNanos += elapsedNanos;
+        }
+    }
+
+    /**
+     * Record time spent waiting for a connection.
+     *
+     * @param elapsedNanos time from asking for a connection to getting it
+     */
+    public void recordConnection(long elapsedNanos) {
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            stats.connectionNanos += elapsedNanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public long getConnectionNanos() {
+        return connectionNanos;
+    }
+
+    /**
+     * Get the statement shape executed most often, with literals and parameter lists folded.
+     *
+     * @return the shape and its count, or null if no statement was executed
+     */
+    public Map.Entry<String, Integer> getMostRepeated() {
+        return shapes.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+    }
+
+    /**
+     * Fail if more statements were executed than the budget allows.
+     *
+     * @param budget the maximum number of statements
+     * @return this scope, for chaining
+     * @throws AssertionError if the budget was exceeded
+     */
+    public QueryStats assertStatementsAtMost(int budget) {
+        if (statements > budget) {
+            throw new AssertionError("expected at most " + budget + " SQL statements but " + statements
+                    + " were executed: " + shapes);
+        }
+        return this;
+    }
+
+    /**
+     * Fail if a statement shape was executed n times or more, the pattern of an N+1 query.
+     *
+     * @param n the number of executions of one shape that fails
+     * @return this scope, for chaining
+     * @throws AssertionError if a shape was repeated n times or more
+     */
+    public QueryStats assertNoRepeatedStatement(int n) {
+        Map.Entry<String, Integer> mostRepeated = getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= n) {
+            throw new AssertionError("SQL statement executed " + mostRepeated.getValue() + " times: "
+                    + mostRepeated.getKey());
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements, " + rows + " rows, "
+                + TimeUnit.NANOSECONDS.toMicros(jdbcNanos) / 1000.0 + " ms in JDBC, "
+                + TimeUnit.NANOSECONDS.toMicros(connectionNanos) / 1000.0 + " ms waiting for connections";
+    }
+
+    /**
+     * Get the shape of a statement, folding it on first sight.
+     */
+    private static String shapeOf(String sql) {
+        return sql == null ? "?" : SHAPES.get(sql, QueryStats::fold);
+    }
+
+    /**
+     * Fold the literals and parameter lists out of a statement.
+     */
+    private static String fold(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+    }
+}
@@ -0,0 +1,16 @@
+package aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sends the read-only transactions of a service method to the primary even when
+ * replicas are configured. Used on reads whose results are stored in shared caches
+ * or answered with an ETag, so replication lag is never cached as the current state.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadFromPrimary {
+}
@@ -0,0 +1,47 @@
+package aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aspect marking the calls of ReadFromPrimary methods on the calling thread.
+ * ReplicaRoutingDataSource reads the mark when a connection is first needed,
+ * so the order against the transaction interceptor does not matter.
+ */
+@Component
+@Aspect
+public class ReadFromPrimaryAspect {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>(); // Set while a ReadFromPrimary call runs
+
+    /**
+     * Check whether the calling thread is inside a ReadFromPrimary call.
+     *
+     * @return true if its reads must go to the primary
+     */
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+
+    /**
+     * Around advice marking the thread for the duration of the call.
+     *
+     * @param joinPoint the join point representing the call
+     * @return the result of the call
+     * @throws Throwable if the call throws an exception
+     */
+    @Around("execution(* service.*.*(..)) && @annotation(aspect.ReadFromPrimary)")
+    public Object readFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (isActive()) {
+            return joinPoint.proceed();
+        }
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+}
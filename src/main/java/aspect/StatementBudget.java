@@ -0,0 +1,23 @@
+package aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the number of SQL statements a controller handler may execute.
+ * Exceeding it is logged and counted by QueryCountAspect; with
+ * todolist.sql.enforce=true, as in integration tests, the request fails instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    /**
+     * Maximum number of statements per call of the handler.
+     *
+     * @return the statement budget
+     */
+    int value();
+}
@@ -0,0 +1,202 @@
+package cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ToDoListDto;
+import dto.ToDoListItemDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Redis read-through cache for a user's lists and for each list's items.
+ * Lists are keyed by user id and items by list id. Write paths evict only the
+ * affected keys, after their transaction commits. When the cache is disabled
+ * with todolist.cache.lists.redis.enabled=false every read goes to the loader.
+ * <p>
+ * Every key has a generation that each eviction increments. A reader notes the
+ * generation with its miss and stores what it loaded only if the generation is
+ * still the same, so a view loaded before a concurrent write committed is never
+ * stored after that write's eviction.
+ */
+@Component
+public class ToDoListCache {
+
+    // Prefixes of the Redis keys holding cached lists and items
+    private static final String LISTS_KEY_PREFIX = "todolist:lists:";
+    private static final String ITEMS_KEY_PREFIX = "todolist:items:";
+    private static final String GENERATION_KEY_SUFFIX = ":gen"; // Suffix of the key holding a key's generation
+
+    // Stores ARGV[2] in KEYS[1] for ARGV[3] ms if the generation in KEYS[2] is still ARGV[1]; returns 1 if stored
+    private static final RedisScript<Long> FILL = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end
+            redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    // Deletes KEYS[1] and increments its generation in KEYS[2], which expires after ARGV[1] ms
+    private static final RedisScript<Long> EVICT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    private final Logger log4j = LogManager.getLogger(ToDoListCache.class);
+
+    private final ObjectMapper objectMapper; // Serializes cached views
+    private final StringRedisTemplate redisTemplate; // Null when the cache is disabled
+    private final Duration ttl; // Time to live of cached views
+    private final String generationTtlMillis; // Outlives any load, so a generation never resets under a reader
+
+    // Collection types used to read cached views back
+    private final JavaType listsType;
+    private final JavaType itemsType;
+
+    // Hit and miss counters
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param objectMapper  the ObjectMapper used to serialize views
+     * @param redisTemplate provider of the StringRedisTemplate
+     * @param meterRegistry registry for hit/miss metrics
+     * @param ttl           time to live of cached views
+     * @param enabled       whether the Redis cache is used
+     */
+    public ToDoListCache(ObjectMapper objectMapper, ObjectProvider<StringRedisTemplate> redisTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${todolist.cache.lists.ttl:30m}") Duration ttl,
+                         @Value("${todolist.cache.lists.redis.enabled:false}") boolean enabled) {
+        this.objectMapper = objectMapper;
+        this.redisTemplate = enabled ? redisTemplate.getIfAvailable() : null;
+        this.ttl = ttl;
+        this.generationTtlMillis = Long.toString(ttl.multipliedBy(2).toMillis());
+        this.listsType = objectMapper.getTypeFactory().constructCollectionType(List.class, ToDoListDto.class);
+        this.itemsType = objectMapper.getTypeFactory().constructCollectionType(List.class, ToDoListItemDto.class);
+        this.hits = Counter.builder("todolist.lists.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("todolist.lists.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Get the lists of a user, loading and caching them on a miss.
+     *
+     * @param userId the ID of the user
+     * @param loader loads the lists from the database
+     * @return the lists of the user
+     */
+    public List<ToDoListDto> getLists(Long userId, Supplier<List<ToDoListDto>> loader) {
+        return read(LISTS_KEY_PREFIX + userId, listsType, loader);
+    }
+
+    /**
+     * Get the items of a list, loading and caching them on a miss.
+     *
+     * @param toDoListId the ID of the list
+     * @param loader     loads the items from the database
+     * @return the items of the list
+     */
+    public List<ToDoListItemDto> getItems(Long toDoListId, Supplier<List<ToDoListItemDto>> loader) {
+        return read(ITEMS_KEY_PREFIX + toDoListId, itemsType, loader);
+    }
+
+    /**
+     * Evict the cached lists of a user once the current transaction commits.
+     *
+     * @param userId the ID of the user
+     */
+    public void evictLists(Long userId) {
+        evictAfterCommit(LISTS_KEY_PREFIX + userId);
+    }
+
+    /**
+     * Evict the cached items of a list once the current transaction commits.
+     *
+     * @param toDoListId the ID of the list
+     */
+    public void evictItems(Long toDoListId) {
+        evictAfterCommit(ITEMS_KEY_PREFIX + toDoListId);
+    }
+
+    /**
+     * Read a view from Redis or fall back to the loader and store its result.
+     * The view and its generation are read in one round trip; the result is stored only
+     * if no eviction happened meanwhile. Redis failures are treated as misses so MySQL
+     * stays the source of truth.
+     */
+    private <T> List<T> read(String key, JavaType type, Supplier<List<T>> loader) {
+        if (redisTemplate == null) {
+            return loader.get();
+        }
+        String generation = null; // Stays null if Redis failed, and then nothing is stored
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(key, key + GENERATION_KEY_SUFFIX));
+            if (values != null) {
+                if (values.get(0) != null) {
+                    hits.increment();
+                    return objectMapper.readValue(values.get(0), type);
+                }
+                generation = values.get(1) == null ? "0" : values.get(1);
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            log4j.warn("list cache read failed: " + e.getMessage());
+        }
+        misses.increment();
+
+        List<T> value = loader.get();
+        if (generation == null) {
+            return value;
+        }
+        try {
+            redisTemplate.execute(FILL, List.of(key, key + GENERATION_KEY_SUFFIX),
+                    generation, objectMapper.writeValueAsString(value), Long.toString(ttl.toMillis()));
+        } catch (DataAccessException | JsonProcessingException e) {
+            log4j.warn("list cache write failed: " + e.getMessage());
+        }
+        return value;
+    }
+
+    /**
+     * Delete a key and move its generation after the surrounding transaction commits,
+     * so a concurrent reader cannot cache the state from before the write.
+     */
+    private void evictAfterCommit(String key) {
+        if (redisTemplate == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete(key);
+                }
+            });
+        } else {
+            delete(key);
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            redisTemplate.execute(EVICT, List.of(key, key + GENERATION_KEY_SUFFIX), generationTtlMillis);
+        } catch (DataAccessException e) {
+            log4j.warn("list cache evict failed: " + e.getMessage());
+        }
+    }
+}
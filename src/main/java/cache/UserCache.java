@@ -0,0 +1,178 @@
+package cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dto.UserDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import mapper.UserMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Two-tier cache of resolved users by username, in front of UserRepository.
+ * The local tier is a bounded in-process Caffeine cache with TTL eviction.
+ * The optional Redis tier is shared between nodes and is enabled with
+ * todolist.cache.user.redis.enabled=true.
+ */
+@Component
+public class UserCache {
+
+    // Prefix of the Redis keys holding cached users
+    private static final String REDIS_KEY_PREFIX = "todolist:user:";
+
+    private final Logger log4j = LogManager.getLogger(UserCache.class);
+
+    private final UserRepository userRepository; // Repository for UserEntity
+    private final UserMapper userMapper; // Mapper for User DTOs
+    private final ObjectMapper objectMapper; // Serializes users for the Redis tier
+    private final StringRedisTemplate redisTemplate; // Null when the Redis tier is disabled
+    private final Duration ttl; // Time to live of both tiers
+
+    private final Cache<String, UserDto> localCache; // In-process tier
+
+    // Hit and miss counters per tier
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param userRepository the UserRepository to fall back to
+     * @param userMapper     the UserMapper to convert entities
+     * @param objectMapper   the ObjectMapper used for the Redis tier
+     * @param redisTemplate  provider of the StringRedisTemplate used for the Redis tier
+     * @param meterRegistry  registry for hit/miss metrics
+     * @param maximumSize    maximum number of users in the local tier
+     * @param ttl            time to live of cached users
+     * @param redisEnabled   whether the shared Redis tier is used
+     */
+    public UserCache(UserRepository userRepository, UserMapper userMapper, ObjectMapper objectMapper,
+                     ObjectProvider<StringRedisTemplate> redisTemplate, MeterRegistry meterRegistry,
+                     @Value("${todolist.cache.user.maximum-size:10000}") long maximumSize,
+                     @Value("${todolist.cache.user.ttl:10m}") Duration ttl,
+                     @Value("${todolist.cache.user.redis.enabled:false}") boolean redisEnabled) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisEnabled ? redisTemplate.getIfAvailable() : null;
+        this.ttl = ttl;
+
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "users");
+
+        this.localHits = counter(meterRegistry, "local", "hit");
+        this.localMisses = counter(meterRegistry, "local", "miss");
+        this.redisHits = counter(meterRegistry, "redis", "hit");
+        this.redisMisses = counter(meterRegistry, "redis", "miss");
+    }
+
+    /**
+     * Resolve a user by username, checking the local tier, then the Redis tier,
+     * then the database. Found users are stored in every enabled tier.
+     * Unknown usernames are not cached.
+     *
+     * @param userName the username of the user
+     * @return an Optional containing the user id, username and password hash
+     */
+    public Optional<UserDto> findByUserName(String userName) {
+        UserDto user = localCache.getIfPresent(userName);
+        if (user != null) {
+            localHits.increment();
+            return Optional.of(user);
+        }
+        localMisses.increment();
+
+        user = readRedis(userName);
+        if (user == null) {
+            user = userRepository.findByUserName(userName).map(userMapper::toDto).orElse(null);
+            if (user == null) {
+                return Optional.empty();
+            }
+            writeRedis(user);
+        }
+
+        localCache.put(userName, user);
+        return Optional.of(user);
+    }
+
+    /**
+     * Remove a user from every tier.
+     *
+     * @param userName the username of the user
+     */
+    public void evict(String userName) {
+        localCache.invalidate(userName);
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.delete(REDIS_KEY_PREFIX + userName);
+            } catch (DataAccessException e) {
+                log4j.warn("user cache redis evict failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read a user from the Redis tier.
+     * Redis failures are treated as misses so the database stays the source of truth.
+     */
+    private UserDto readRedis(String userName) {
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + userName);
+            if (json == null) {
+                redisMisses.increment();
+                return null;
+            }
+            redisHits.increment();
+            return objectMapper.readValue(json, UserDto.class);
+        } catch (DataAccessException | JsonProcessingException e) {
+            redisMisses.increment();
+            log4j.warn("user cache redis read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a user to the Redis tier with the configured TTL.
+     */
+    private void writeRedis(UserDto user) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + user.getUserName(),
+                    objectMapper.writeValueAsString(user), ttl);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log4j.warn("user cache redis write failed: " + e.getMessage());
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("todolist.user.cache")
+                .description("User cache lookups by tier and result")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,150 @@
+package cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamps used as strong ETags for the list and item endpoints.
+ * A user's stamp changes with every write to any of their lists or items,
+ * and a list's stamp changes with every write to its items, so an unchanged
+ * stamp means the response would be identical and can be answered with 304.
+ * <p>
+ * Stamps are kept in a bounded local cache. Every new or bumped stamp takes a
+ * fresh value from one process-wide counter, so an evicted stamp never comes
+ * back with a value a client has already seen; the process epoch in the ETag
+ * does the same across restarts. With several nodes the stamps must be shared,
+ * which is done with todolist.etag.redis.enabled=true. Shared stamps are counters
+ * per key, so their ETags also carry the key, such as "user-42-1700000000123".
+ */
+@Component
+public class VersionStamps {
+
+    // Prefixes of the stamp keys
+    private static final String KEY_PREFIX = "todolist:version:";
+    private static final String USER_KEY_PREFIX = KEY_PREFIX + "user:";
+    private static final String LIST_KEY_PREFIX = KEY_PREFIX + "list:";
+
+    private final Logger log4j = LogManager.getLogger(VersionStamps.class);
+
+    private final StringRedisTemplate redisTemplate; // Null when stamps are local
+    private final Cache<String, Long> localStamps; // Stamps of this node
+
+    private final AtomicLong clock = new AtomicLong(); // Source of new local stamp values
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8); // Changes on every start
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param redisTemplate provider of the StringRedisTemplate used for shared stamps
+     * @param maximumSize   maximum number of stamps kept locally
+     * @param redisEnabled  whether stamps are shared through Redis
+     */
+    public VersionStamps(ObjectProvider<StringRedisTemplate> redisTemplate,
+                         @Value("${todolist.etag.maximum-size:100000}") long maximumSize,
+                         @Value("${todolist.etag.redis.enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisEnabled ? redisTemplate.getIfAvailable() : null;
+        this.localStamps = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Get the ETag of everything a user can read: their lists and all their items.
+     * It must be read before the data it describes.
+     *
+     * @param userId the ID of the user
+     * @return the strong ETag, or null if no stamp is available
+     */
+    public String userETag(Long userId) {
+        return eTag(USER_KEY_PREFIX + userId);
+    }
+
+    /**
+     * Get the ETag of the items of a list.
+     * It must be read before the data it describes.
+     *
+     * @param toDoListId the ID of the list
+     * @return the strong ETag, or null if no stamp is available
+     */
+    public String listETag(Long toDoListId) {
+        return eTag(LIST_KEY_PREFIX + toDoListId);
+    }
+
+    /**
+     * Change the stamp of a user once the current transaction commits.
+     *
+     * @param userId the ID of the user
+     */
+    public void touchUser(Long userId) {
+        bumpAfterCommit(USER_KEY_PREFIX + userId);
+    }
+
+    /**
+     * Change the stamp of a list once the current transaction commits.
+     * The stamp of the owning user must be changed as well.
+     *
+     * @param toDoListId the ID of the list
+     */
+    public void touchList(Long toDoListId) {
+        bumpAfterCommit(LIST_KEY_PREFIX + toDoListId);
+    }
+
+    private String eTag(String key) {
+        if (redisTemplate == null) {
+            return "\"" + epoch + "-" + localStamps.get(key, k -> clock.incrementAndGet()) + "\"";
+        }
+        try {
+            // A missing key starts from the current time, so it never repeats a value from before a flush
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+            String stamp = redisTemplate.opsForValue().get(key);
+            // Counters of different keys start from similar times, so the key keeps their ETags apart
+            return stamp == null ? null : "\"" + key.substring(KEY_PREFIX.length()).replace(':', '-') + "-" + stamp + "\"";
+        } catch (DataAccessException e) {
+            log4j.warn("version stamp read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Bump a stamp after the surrounding transaction commits. Synchronizations run
+     * in registration order, so cache evictions registered before this are done
+     * before a reader can see the new stamp.
+     */
+    private void bumpAfterCommit(String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(key);
+                }
+            });
+        } else {
+            bump(key);
+        }
+    }
+
+    private void bump(String key) {
+        if (redisTemplate == null) {
+            localStamps.put(key, clock.incrementAndGet());
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+            redisTemplate.opsForValue().increment(key);
+        } catch (DataAccessException e) {
+            log4j.warn("version stamp bump failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Security filter admitting requests before they reach the controllers.
+ * Every request takes a token from its client's bucket in the RateLimiter: login and
+ * registration per client address, authenticated requests per user, and the rest per
+ * address. An empty bucket is answered with 429 and a Retry-After header.
+ * <p>
+ * Paths matching a pattern of todolist.ratelimit.concurrency are also capped in the number
+ * of requests in progress on this node; a request over the cap is answered with 503.
+ * Asynchronous requests, such as streamed exports, hold their slot until they complete.
+ * Rejections are written directly, without an error dispatch, and counted in
+ * todolist.admission.rejected.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    // Paths limited per client address with the AUTH policy, before any password is checked
+    private static final Set<String> AUTH_PATHS = Set.of("/login", "/register", "/auth/token", "/users");
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final RateLimiter rateLimiter; // Token buckets per client
+    private final List<ConcurrencyCap> concurrencyCaps = new ArrayList<>(); // Caps per path pattern
+
+    // Rejections by policy, and by concurrency cap
+    private final Map<RateLimiter.Policy, Counter> rateRejections = new EnumMap<>(RateLimiter.Policy.class);
+    private final Counter concurrencyRejections;
+
+    /**
+     * Create the filter.
+     *
+     * @param rateLimiter     the token buckets per client
+     * @param concurrencyCaps maximum requests in progress per Ant path pattern
+     * @param meterRegistry   registry for the rejection counters
+     */
+    public AdmissionFilter(RateLimiter rateLimiter, Map<String, Integer> concurrencyCaps, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        concurrencyCaps.forEach((pattern, max) -> this.concurrencyCaps.add(new ConcurrencyCap(pattern, max)));
+        for (RateLimiter.Policy policy : RateLimiter.Policy.values()) {
+            rateRejections.put(policy, rejectionCounter(meterRegistry, "rate", policy.name().toLowerCase()));
+        }
+        this.concurrencyRejections = rejectionCounter(meterRegistry, "concurrency", "path");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+
+        RateLimiter.Policy policy;
+        String key;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (AUTH_PATHS.contains(path)) {
+            policy = RateLimiter.Policy.AUTH;
+            key = request.getRemoteAddr();
+        } else if (authentication != null && authentication.isAuthenticated()) {
+            policy = RateLimiter.Policy.USER;
+            key = authentication.getName();
+        } else {
+            policy = RateLimiter.Policy.ANONYMOUS;
+            key = request.getRemoteAddr();
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(policy, key);
+        if (waitNanos > 0) {
+            rateRejections.get(policy).increment();
+            // Whole seconds, rounded up so a client honouring it finds a token
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1),
+                    "too many requests, retry later");
+            return;
+        }
+
+        ConcurrencyCap cap = findCap(path);
+        if (cap == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!cap.tryAcquire()) {
+            concurrencyRejections.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "service busy, retry later");
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(cap));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                cap.release();
+            }
+        }
+    }
+
+    /**
+     * Find the concurrency cap of a path. Literal patterns are compared as strings, and the
+     * others only matched once their literal prefix is.
+     */
+    private ConcurrencyCap findCap(String path) {
+        for (ConcurrencyCap cap : concurrencyCaps) {
+            if (cap.exact ? path.equals(cap.pattern) : path.startsWith(cap.prefix) && PATH_MATCHER.match(cap.pattern, path)) {
+                return cap;
+            }
+        }
+        return null;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason, String policy) {
+        return Counter.builder("todolist.admission.rejected")
+                .description("Requests rejected before reaching a controller")
+                .tags("reason", reason, "policy", policy)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Number of requests in progress for one path pattern, taken with compare-and-set.
+     */
+    private static final class ConcurrencyCap {
+
+        private final String pattern;
+        private final String prefix; // Literal start of the pattern, for a cheap first check
+        private final boolean exact; // Whether the pattern is a literal path
+        private final int max;
+        private final AtomicInteger inProgress = new AtomicInteger();
+
+        private ConcurrencyCap(String pattern, int max) {
+            this.pattern = pattern;
+            int wildcard = pattern.indexOf('*');
+            int variable = pattern.indexOf('{');
+            int end = wildcard < 0 ? variable : variable < 0 ? wildcard : Math.min(wildcard, variable);
+            this.prefix = end < 0 ? pattern : pattern.substring(0, end);
+            this.exact = end < 0;
+            this.max = max;
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = inProgress.get();
+                if (current >= max) {
+                    return false;
+                }
+                if (inProgress.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            inProgress.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the slot of an asynchronous request once it completes, fails or times out.
+     */
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final ConcurrencyCap cap;
+        private boolean released;
+
+        private ReleasingListener(ConcurrencyCap cap) {
+            this.cap = cap;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // The listener is kept for the restarted request
+            event.getAsyncContext().addListener(this);
+        }
+
+        private synchronized void release() {
+            if (!released) {
+                released = true;
+                cap.release();
+            }
+        }
+    }
+}
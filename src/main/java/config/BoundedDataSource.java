@@ -0,0 +1,161 @@
+package config;
+
+import aspect.QueryStats;
+import exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource that admits a bounded number of callers to the connection pool.
+ * A caller takes a permit before asking the pool for a connection and gives it
+ * back when the connection is closed. A thread already holding a permit opens
+ * further connections without another one (Flyway, REQUIRES_NEW), so it can never
+ * wait on itself; the pool still bounds those. The permit is returned when the last
+ * of the thread's connections closes, in whatever order they are closed. Callers
+ * beyond the permits wait in a fair queue for at most the acquire timeout; when the
+ * queue is full, or the wait times out, the call is rejected with ServiceBusyException
+ * (HTTP 503).
+ * <p>
+ * With virtual threads request concurrency is no longer capped by the Tomcat
+ * worker pool, so without this limit every blocked request would queue inside
+ * the pool and time out there after the full connection timeout.
+ * <p>
+ * The wait for a permit and a connection is recorded into the QueryStats scope of the
+ * caller, where LoadSheddingAspect reads it.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits; // One permit per thread holding connections
+    private final int maxWaiting; // Callers allowed to wait for a permit
+    private final long acquireTimeoutNanos; // Longest wait for a permit
+    // Connections open on each thread; the thread holds a permit while its count is above zero
+    private final ThreadLocal<AtomicInteger> openConnections = ThreadLocal.withInitial(AtomicInteger::new);
+
+    private Counter rejections; // Calls shed because the limit was reached, set once metrics are bound
+
+    /**
+     * Wrap a DataSource.
+     *
+     * @param delegate       the pooled DataSource handing out the connections
+     * @param maxConcurrency number of threads holding connections at the same time
+     * @param maxWaiting     number of callers allowed to wait for a connection
+     * @param acquireTimeout longest wait for a connection before rejecting with 503
+     */
+    public BoundedDataSource(DataSource delegate, int maxConcurrency, int maxWaiting, Duration acquireTimeout) {
+        super(delegate);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    /**
+     * Publish the number of connections in use and waiting callers, and count rejections.
+     *
+     * @param meterRegistry the registry to publish to
+     */
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("todolist.datasource.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for a database connection permit")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("todolist.datasource.rejected")
+                .description("Connection requests rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return open(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return open(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * Open a connection, taking a permit unless the thread already holds one.
+     * The permit is returned when the last open connection of the thread is closed.
+     */
+    private Connection open(ConnectionSource source) throws SQLException {
+        AtomicInteger open = openConnections.get();
+        boolean acquired = open.get() == 0;
+
+        long start = System.nanoTime();
+        if (acquired) {
+            acquire();
+        }
+        Connection connection;
+        try {
+            connection = source.get();
+        } catch (SQLException | RuntimeException e) {
+            if (acquired) {
+                permits.release();
+            }
+            throw e;
+        }
+        QueryStats stats = QueryStats.current();
+        if (acquired && stats != null) {
+            stats.recordConnection(System.nanoTime() - start);
+        }
+
+        open.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        // A connection may be closed more than once; only the first close counts
+                        if (method.getName().equals("close") && closed.compareAndSet(false, true)
+                                && open.decrementAndGet() == 0) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Take a permit, waiting at most the acquire timeout.
+     */
+    private void acquire() {
+        // Checked first so a saturated pool sheds load at once instead of growing the queue
+        if (permits.getQueueLength() >= maxWaiting || !tryAcquire()) {
+            if (rejections != null) {
+                rejections.increment();
+            }
+            throw new ServiceBusyException("database is saturated, retry later");
+        }
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("interrupted while waiting for a database connection");
+        }
+    }
+
+    /**
+     * Connection factory of the wrapped DataSource.
+     */
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,146 @@
+package config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DataSource configuration: optional read-replica routing and a concurrency limit in
+ * front of the connection pools.
+ * <p>
+ * With todolist.datasource.replicas.urls set, read-only transactions are sent to the
+ * replicas and everything else to the primary (see ReplicaRoutingDataSource).
+ * <p>
+ * The limit defaults to the primary pool size, so callers beyond it wait in the limiter's
+ * bounded queue and are rejected with 503 when it is full, instead of piling up
+ * inside the pool. This matters most with spring.threads.virtual.enabled=true,
+ * where every request runs on its own virtual thread.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Bean post-processor wrapping the application DataSource in a ReplicaRoutingDataSource
+     * when replicas are configured, a QueryCountingDataSource and a BoundedDataSource.
+     * Static, so it is registered before the DataSource is created.
+     *
+     * @param environment the environment holding the todolist.datasource settings
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(Environment environment) {
+        return new DestructionAwareBeanPostProcessor() {
+
+            // Routing wrappers by bean name; Spring destroys the unwrapped bean, so their replica pools are closed here
+            private final Map<String, ReplicaRoutingDataSource> routingDataSources = new ConcurrentHashMap<>();
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BoundedDataSource) {
+                    return bean;
+                }
+                int maxConcurrency = environment.getProperty("todolist.datasource.max-concurrency", Integer.class, 0);
+                if (maxConcurrency <= 0) {
+                    // Hikari's pool size is bound by now; an unset size becomes Hikari's default of 10
+                    maxConcurrency = dataSource instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                            ? hikari.getMaximumPoolSize() : 10;
+                }
+                int maxWaiting = environment.getProperty("todolist.datasource.max-waiting", Integer.class, 1000);
+                Duration acquireTimeout = environment.getProperty("todolist.datasource.acquire-timeout",
+                        Duration.class, Duration.ofSeconds(2));
+
+                String[] replicaUrls = environment.getProperty("todolist.datasource.replicas.urls", String[].class, new String[0]);
+                if (replicaUrls.length > 0) {
+                    ReplicaRoutingDataSource routingDataSource = routeToReplicas(environment, dataSource, replicaUrls);
+                    routingDataSources.put(beanName, routingDataSource);
+                    dataSource = routingDataSource;
+                }
+                // Statements are counted per request for the X-SQL-* headers and N+1 detection
+                dataSource = new QueryCountingDataSource(dataSource);
+                return new BoundedDataSource(dataSource, maxConcurrency, maxWaiting, acquireTimeout);
+            }
+
+            @Override
+            public void postProcessBeforeDestruction(Object bean, String beanName) {
+                ReplicaRoutingDataSource routingDataSource = routingDataSources.remove(beanName);
+                if (routingDataSource != null) {
+                    routingDataSource.close();
+                }
+            }
+
+            @Override
+            public boolean requiresDestruction(Object bean) {
+                return bean instanceof DataSource;
+            }
+        };
+    }
+
+    /**
+     * Bean definition publishing the limiter and routing metrics once the MeterRegistry exists.
+     *
+     * @param dataSource the application DataSource
+     * @return the binder registering the todolist.datasource metrics
+     */
+    @Bean
+    public MeterBinder boundedDataSourceMetrics(DataSource dataSource) {
+        return meterRegistry -> {
+            // Walk the wrappers down to the pool
+            for (DataSource current = dataSource; current instanceof DelegatingDataSource delegating;
+                 current = delegating.getTargetDataSource()) {
+                if (current instanceof BoundedDataSource boundedDataSource) {
+                    boundedDataSource.bindTo(meterRegistry);
+                } else if (current instanceof ReplicaRoutingDataSource replicaRoutingDataSource) {
+                    replicaRoutingDataSource.bindTo(meterRegistry);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create one pool per replica URL and route read-only transactions to them.
+     * Replicas share the primary's credentials unless their own are set.
+     */
+    private static ReplicaRoutingDataSource routeToReplicas(Environment environment, DataSource primary,
+                                                            String[] replicaUrls) {
+        String username = environment.getProperty("todolist.datasource.replicas.username",
+                environment.getProperty("spring.datasource.username"));
+        String password = environment.getProperty("todolist.datasource.replicas.password",
+                environment.getProperty("spring.datasource.password"));
+        int poolSize = environment.getProperty("todolist.datasource.replicas.pool-size", Integer.class, 10);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(replicaUrls[i].trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // A replica that is down is skipped quickly instead of after 30 s
+            replica.setConnectionTimeout(environment.getProperty("todolist.datasource.replicas.connection-timeout",
+                    Duration.class, Duration.ofSeconds(2)).toMillis());
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource.Selection selection = ReplicaRoutingDataSource.Selection.valueOf(
+                environment.getProperty("todolist.datasource.replicas.selection", "round-robin")
+                        .toUpperCase(Locale.ROOT).replace('-', '_'));
+        Duration stickyWindow = environment.getProperty("todolist.datasource.replicas.sticky-window",
+                Duration.class, Duration.ofSeconds(5));
+        return new ReplicaRoutingDataSource(primary, replicas, selection, stickyWindow);
+    }
+}
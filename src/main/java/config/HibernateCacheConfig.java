@@ -0,0 +1,96 @@
+package config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level and query cache configuration.
+ * Every region is a bounded local Caffeine cache behind the JCache API, sized with
+ * todolist.cache.l2.&lt;region&gt;.maximum-size and expired after todolist.cache.l2.ttl
+ * (or todolist.cache.l2.&lt;region&gt;.ttl). Regions not created here make Hibernate
+ * fail at startup, so every cached entity, collection and query must name one of them.
+ * <p>
+ * The cache is local to each node: Hibernate invalidates it on this node's writes,
+ * while writes on other nodes become visible once the TTL expires.
+ * <p>
+ * Items are not cached: they are mostly changed with bulk JPQL statements, and each of
+ * those empties the whole region of the entity it updates or deletes.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    // Entity and collection regions, named in the @Cache annotations of the model
+    private static final String USER_REGION = "user";
+    private static final String TODO_LIST_REGION = "todolist";
+
+    // Query result regions, named in the query hints of the repositories
+    private static final String USER_QUERY_REGION = "user-query";
+    private static final String TODO_LIST_QUERY_REGION = "todolist-query";
+
+    // Regions Hibernate always uses once the query cache is on
+    private static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /**
+     * Bean definition for the JCache manager holding the second-level cache regions.
+     *
+     * @param environment the environment holding the todolist.cache.l2 settings
+     * @return the cache manager, closed with the application context
+     */
+    @Bean
+    public CacheManager hibernateCacheManager(Environment environment) {
+        CachingProvider cachingProvider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A manager of its own: the default one is shared by every application context in the JVM
+        CacheManager cacheManager = cachingProvider.getCacheManager(
+                URI.create("todolist-l2-" + UUID.randomUUID()), HibernateCacheConfig.class.getClassLoader());
+
+        Duration defaultTtl = environment.getProperty("todolist.cache.l2.ttl", Duration.class, Duration.ofMinutes(10));
+        for (String region : List.of(USER_REGION, TODO_LIST_REGION, USER_QUERY_REGION, TODO_LIST_QUERY_REGION, DEFAULT_QUERY_REGION)) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(environment.getProperty(
+                    "todolist.cache.l2." + region + ".maximum-size", Long.class, 10_000L)));
+            configuration.setExpireAfterWrite(OptionalLong.of(environment.getProperty(
+                    "todolist.cache.l2." + region + ".ttl", Duration.class, defaultTtl).toNanos()));
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+
+        // One entry per table; an evicted timestamp would let stale query results through
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    /**
+     * Bean definition handing the cache manager to Hibernate's JCache region factory.
+     * Whether the caches are used is still controlled by hibernate.cache.use_second_level_cache
+     * and hibernate.cache.use_query_cache.
+     *
+     * @param hibernateCacheManager the cache manager holding the regions
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
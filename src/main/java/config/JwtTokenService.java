@@ -0,0 +1,89 @@
+package config;
+
+import dto.AuthenticatedUser;
+import dto.TokenDto;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Issues and validates the signed JWTs used by the stateless authentication mode.
+ * Tokens carry the user id and username, so validating one needs no database access.
+ */
+@Component
+public class JwtTokenService {
+
+    // Claim holding the user id
+    private static final String USER_ID_CLAIM = "uid";
+
+    private final Logger log4j = LogManager.getLogger(JwtTokenService.class);
+
+    private final SecretKey key; // HMAC key signing the tokens
+    private final JwtParser parser; // Reusable, thread-safe parser
+    private final Duration ttl; // Lifetime of issued tokens
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param secret HMAC secret of at least 32 bytes; a random one is used when empty
+     * @param ttl    lifetime of issued tokens
+     */
+    public JwtTokenService(@Value("${todolist.jwt.secret:}") String secret,
+                           @Value("${todolist.jwt.ttl:1h}") Duration ttl) {
+        if (secret.isEmpty()) {
+            // Tokens then only validate on this node and until it restarts
+            log4j.warn("todolist.jwt.secret is not set, using a random key");
+            this.key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        } else {
+            this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        }
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.ttl = ttl;
+    }
+
+    /**
+     * Issue a token for a user.
+     *
+     * @param user the authenticated user
+     * @return a TokenDto containing the signed token and its lifetime
+     */
+    public TokenDto issue(AuthenticatedUser user) {
+        Date now = new Date();
+        String token = Jwts.builder()
+                .setSubject(user.getUserName())
+                .claim(USER_ID_CLAIM, user.getId())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ttl.toMillis()))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+        return new TokenDto(token, ttl.toSeconds());
+    }
+
+    /**
+     * Validate a token and read its user.
+     *
+     * @param token the signed token
+     * @return an Optional containing the user, empty if the token is invalid or expired
+     */
+    public Optional<AuthenticatedUser> parse(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return Optional.of(new AuthenticatedUser(claims.get(USER_ID_CLAIM, Long.class), claims.getSubject()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
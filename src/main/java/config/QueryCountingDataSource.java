@@ -0,0 +1,120 @@
+package config;
+
+import aspect.QueryStats;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource recording every executed statement, the rows it returned and the time spent
+ * in JDBC into the QueryStats scope of the calling thread.
+ * Connections opened while no scope is open are handed out unwrapped, so background work
+ * such as streamed exports pays nothing.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    /**
+     * Create the counting DataSource.
+     *
+     * @param targetDataSource the DataSource to count statements of
+     */
+    public QueryCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection connection) {
+        QueryStats stats = QueryStats.current();
+        if (stats == null) {
+            return connection;
+        }
+        return proxy(Connection.class, connection, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement and prepareCall know their SQL up front, createStatement gets it per call
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return wrap(statement, statementType(method), sql, stats);
+            }
+            return result;
+        });
+    }
+
+    private static Statement wrap(Statement statement, Class<? extends Statement> type, String preparedSql,
+                                  QueryStats stats) {
+        return proxy(type, statement, (method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    Object result = invoke(statement, method, args);
+                    return result instanceof ResultSet resultSet ? wrap(resultSet, stats) : result;
+                } finally {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                    stats.recordStatement(sql, System.nanoTime() - start);
+                }
+            }
+            Object result = invoke(statement, method, args);
+            return name.equals("getResultSet") && result instanceof ResultSet resultSet ? wrap(resultSet, stats) : result;
+        });
+    }
+
+    private static ResultSet wrap(ResultSet resultSet, QueryStats stats) {
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            if (!method.getName().equals("next")) {
+                return invoke(resultSet, method, args);
+            }
+            long start = System.nanoTime();
+            Object hasRow = invoke(resultSet, method, args);
+            stats.recordRows(Boolean.TRUE.equals(hasRow) ? 1 : 0, System.nanoTime() - start);
+            return hasRow;
+        });
+    }
+
+    private static Class<? extends Statement> statementType(Method method) {
+        return switch (method.getName()) {
+            case "prepareStatement" -> PreparedStatement.class;
+            case "prepareCall" -> CallableStatement.class;
+            default -> Statement.class;
+        };
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<? extends T> type, T target, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method, args));
+    }
+
+    /**
+     * Invocation handler of a JDBC proxy.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
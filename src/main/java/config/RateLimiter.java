@@ -0,0 +1,162 @@
+package config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets limiting the request rate of each client, one set of buckets per Policy.
+ * A bucket refills at todolist.ratelimit.&lt;policy&gt;.rate tokens per second and holds at
+ * most todolist.ratelimit.&lt;policy&gt;.burst tokens.
+ * <p>
+ * Buckets are kept as the time at which they will be full again (the generic cell rate
+ * algorithm), so a bucket is a single AtomicLong updated with compare-and-set, and the
+ * buckets live in a size-bounded Caffeine map striped by key. An evicted bucket comes back
+ * full, so eviction can only make the limit more lenient for the least recently seen clients.
+ * <p>
+ * With todolist.ratelimit.redis.enabled=true the buckets are kept in Redis, updated by one
+ * script call per request, so a client's limit holds across nodes. When Redis fails the
+ * local buckets are used.
+ */
+@Component
+public class RateLimiter {
+
+    // Prefix of the Redis keys holding buckets
+    private static final String REDIS_KEY_PREFIX = "todolist:ratelimit:";
+
+    // Takes a token from the bucket in KEYS[1] on the Redis clock; returns 0, or the microseconds until one is available
+    private static final RedisScript<Long> TAKE_TOKEN = new DefaultRedisScript<>("""
+            redis.replicate_commands()
+            local time = redis.call('TIME')
+            local now = time[1] * 1000000 + time[2]
+            local interval = tonumber(ARGV[1])
+            local tolerance = tonumber(ARGV[2])
+            local full = tonumber(redis.call('GET', KEYS[1]) or now)
+            if full < now then full = now end
+            local next = full + interval
+            local wait = next - now - tolerance
+            if wait > 0 then return wait end
+            redis.call('SET', KEYS[1], next, 'PX', math.ceil((next - now) / 1000))
+            return 0
+            """, Long.class);
+
+    /**
+     * Client classes with separate limits.
+     */
+    public enum Policy {
+        /** Login and registration, per client address. */
+        AUTH,
+        /** Authenticated requests, per user. */
+        USER,
+        /** Other unauthenticated requests, per client address. */
+        ANONYMOUS
+    }
+
+    private final Logger log4j = LogManager.getLogger(RateLimiter.class);
+
+    private final StringRedisTemplate redisTemplate; // Null when the buckets are local
+    private final Map<Policy, Buckets> buckets = new EnumMap<>(Policy.class); // Local buckets per policy
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param redisTemplate provider of the StringRedisTemplate used for shared buckets
+     * @param authRate      tokens per second of AUTH buckets
+     * @param authBurst     capacity of AUTH buckets
+     * @param userRate      tokens per second of USER buckets
+     * @param userBurst     capacity of USER buckets
+     * @param anonymousRate tokens per second of ANONYMOUS buckets
+     * @param anonymousBurst capacity of ANONYMOUS buckets
+     * @param maximumKeys   maximum number of local buckets per policy
+     * @param redisEnabled  whether the buckets are shared through Redis
+     */
+    public RateLimiter(ObjectProvider<StringRedisTemplate> redisTemplate,
+                       @Value("${todolist.ratelimit.auth.rate:0.5}") double authRate,
+                       @Value("${todolist.ratelimit.auth.burst:10}") int authBurst,
+                       @Value("${todolist.ratelimit.user.rate:20}") double userRate,
+                       @Value("${todolist.ratelimit.user.burst:50}") int userBurst,
+                       @Value("${todolist.ratelimit.anonymous.rate:20}") double anonymousRate,
+                       @Value("${todolist.ratelimit.anonymous.burst:50}") int anonymousBurst,
+                       @Value("${todolist.ratelimit.maximum-keys:100000}") long maximumKeys,
+                       @Value("${todolist.ratelimit.redis.enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisEnabled ? redisTemplate.getIfAvailable() : null;
+        buckets.put(Policy.AUTH, new Buckets(authRate, authBurst, maximumKeys));
+        buckets.put(Policy.USER, new Buckets(userRate, userBurst, maximumKeys));
+        buckets.put(Policy.ANONYMOUS, new Buckets(anonymousRate, anonymousBurst, maximumKeys));
+    }
+
+    /**
+     * Take a token from a client's bucket.
+     *
+     * @param policy the limit applying to the client
+     * @param key    the client, a username or an address
+     * @return 0 if the request is admitted, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(Policy policy, String key) {
+        Buckets policyBuckets = buckets.get(policy);
+        if (redisTemplate != null) {
+            try {
+                Long waitMicros = redisTemplate.execute(TAKE_TOKEN,
+                        List.of(REDIS_KEY_PREFIX + policy.name().toLowerCase() + ":" + key),
+                        Long.toString(TimeUnit.NANOSECONDS.toMicros(policyBuckets.intervalNanos)),
+                        Long.toString(TimeUnit.NANOSECONDS.toMicros(policyBuckets.toleranceNanos)));
+                return waitMicros == null ? 0 : TimeUnit.MICROSECONDS.toNanos(waitMicros);
+            } catch (DataAccessException e) {
+                log4j.warn("rate limit redis call failed, using local buckets: " + e.getMessage());
+            }
+        }
+        return policyBuckets.tryAcquire(key);
+    }
+
+    /**
+     * Local buckets of one policy.
+     */
+    private static final class Buckets {
+
+        private final long intervalNanos; // Time to refill one token
+        private final long toleranceNanos; // Time to refill the whole bucket
+        private final Cache<String, AtomicLong> fullAt; // Per key, the nanoTime at which the bucket is full
+
+        private Buckets(double rate, int burst, long maximumKeys) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            this.toleranceNanos = intervalNanos * burst;
+            // Size-bounded only: expiry would write an access time on every read
+            this.fullAt = Caffeine.newBuilder()
+                    .maximumSize(maximumKeys)
+                    .build();
+        }
+
+        private long tryAcquire(String key) {
+            long now = System.nanoTime();
+            AtomicLong bucket = fullAt.getIfPresent(key);
+            if (bucket == null) {
+                bucket = fullAt.get(key, k -> new AtomicLong(now));
+            }
+            while (true) {
+                long full = bucket.get();
+                long next = Math.max(full, now) + intervalNanos;
+                long wait = next - now - toleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(full, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package config;
+
+import aspect.ReadFromPrimaryAspect;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource sending read-only transactions to replicas and everything else to the primary.
+ * Connections are fetched lazily, so the choice is made at the first statement, once the
+ * transaction has marked the connection read-only.
+ * <p>
+ * A user whose read-write transaction committed within the sticky window reads from the
+ * primary, so they always see their own writes despite replication lag. The window is
+ * kept per node. A replica that cannot hand out a connection is skipped for a short back-off,
+ * and reads fall back to the other replicas, then to the primary.
+ * <p>
+ * Replica results never reach shared caches: reads that fill them are marked ReadFromPrimary
+ * and always go to the primary, and a session reading from a replica only gets entities from
+ * the Hibernate second-level and query caches, it never puts any there.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    /**
+     * How a replica is picked for a read-only transaction.
+     */
+    public enum Selection {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private static final Duration REPLICA_BACKOFF = Duration.ofSeconds(10); // How long a failing replica is skipped
+
+    private final Logger log4j = LogManager.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary; // Pool of the primary
+    private final List<HikariDataSource> replicas; // Pools of the replicas
+    private final Selection selection; // How a replica is picked
+    private final Cache<String, Boolean> stickyUsers; // Users who wrote within the sticky window
+    private final Cache<HikariDataSource, Boolean> failedReplicas = Caffeine.newBuilder()
+            .expireAfterWrite(REPLICA_BACKOFF)
+            .build(); // Replicas skipped after failing to hand out a connection
+    private final AtomicInteger nextReplica = new AtomicInteger(); // Round-robin position
+
+    // Read-only transactions by target, set once metrics are bound
+    private Counter replicaReads;
+    private Counter primaryReads;
+
+    /**
+     * Create the routing DataSource.
+     *
+     * @param primary      the pool of the primary
+     * @param replicas     the pools of the replicas
+     * @param selection    how a replica is picked
+     * @param stickyWindow how long a user reads from the primary after a write
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Selection selection,
+                                    Duration stickyWindow) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.stickyUsers = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .maximumSize(100_000)
+                .build();
+        setTargetDataSource(new WriteTrackingDataSource(primary));
+        setReadOnlyDataSource(new ReadOnlyDataSource());
+        afterPropertiesSet();
+    }
+
+    /**
+     * Count read-only transactions by the database serving them.
+     *
+     * @param meterRegistry the registry to publish to
+     */
+    public void bindTo(MeterRegistry meterRegistry) {
+        this.replicaReads = Counter.builder("todolist.datasource.reads").tag("target", "replica")
+                .description("Read-only transactions by the database serving them")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("todolist.datasource.reads").tag("target", "primary")
+                .description("Read-only transactions by the database serving them")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Close the replica pools. The primary is closed by its own bean.
+     */
+    @Override
+    public void close() {
+        for (HikariDataSource replica : replicas) {
+            replica.close();
+        }
+    }
+
+    /**
+     * Get the name of the authenticated user of the current thread, or null.
+     */
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+
+    /**
+     * Order the available replicas for the next read-only transaction, preferred one first.
+     */
+    private List<HikariDataSource> orderReplicas() {
+        List<HikariDataSource> available = new ArrayList<>(replicas.size());
+        for (HikariDataSource replica : replicas) {
+            if (failedReplicas.getIfPresent(replica) == null) {
+                available.add(replica);
+            }
+        }
+        if (selection == Selection.LEAST_CONNECTIONS) {
+            available.sort(Comparator.comparingInt(ReplicaRoutingDataSource::activeConnections));
+        } else if (!available.isEmpty()) {
+            Collections.rotate(available, -Math.floorMod(nextReplica.getAndIncrement(), available.size()));
+        }
+        return available;
+    }
+
+    private static int activeConnections(HikariDataSource replica) {
+        // The pool MXBean is only there once the pool has started
+        return replica.getHikariPoolMXBean() == null ? 0 : replica.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    /**
+     * Primary connections of read-write transactions mark the user sticky once the transaction commits.
+     */
+    private final class WriteTrackingDataSource extends DelegatingDataSource {
+
+        private WriteTrackingDataSource(DataSource primary) {
+            super(primary);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            String user = currentUser();
+            if (user != null && TransactionSynchronizationManager.isSynchronizationActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        stickyUsers.put(user, Boolean.TRUE);
+                    }
+                });
+            }
+            return super.getConnection();
+        }
+    }
+
+    /**
+     * Connections of read-only transactions: a replica, or the primary for sticky users and when no replica is available.
+     */
+    private final class ReadOnlyDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            String user = currentUser();
+            if (!ReadFromPrimaryAspect.isActive() && (user == null || stickyUsers.getIfPresent(user) == null)) {
+                for (HikariDataSource replica : orderReplicas()) {
+                    try {
+                        Connection connection = replica.getConnection();
+                        if (replicaReads != null) {
+                            replicaReads.increment();
+                        }
+                        stopCachePuts();
+                        return connection;
+                    } catch (SQLException e) {
+                        failedReplicas.put(replica, Boolean.TRUE);
+                        log4j.warn("replica " + replica.getPoolName() + " unavailable, skipped for "
+                                + REPLICA_BACKOFF.toSeconds() + "s: " + e.getMessage());
+                    }
+                }
+            }
+            if (primaryReads != null) {
+                primaryReads.increment();
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new UnsupportedOperationException("replica connections use the configured credentials");
+        }
+
+        /**
+         * Let the Hibernate session of the current transaction read from the second-level and
+         * query caches without putting anything there. The session ends with the transaction.
+         */
+        private void stopCachePuts() {
+            for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+                if (resource instanceof EntityManagerHolder holder) {
+                    holder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+                }
+            }
+        }
+    }
+}
@@ -1,32 +1,56 @@
 package config;
 
+import cache.UserCache;
+import dto.AuthenticatedUser;
+import dto.TokenDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.RequestCacheConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.util.Map;
 
 /**
  * Security configuration class for the Spring application.
  * This class sets up password encoding, authentication management,
  * and HTTP security rules including login, logout, and URL access permissions.
+ * With todolist.auth.mode=jwt the application is stateless: login issues a signed
+ * JWT and no HTTP session is created.
  */
 @Configuration
 public class SecurityConfig {
 
     /**
      * Bean definition for password encoding using BCrypt.
-     * This is used to securely hash user passwords before storing in the database.
+     * This is used to securely hash user passwords before storing in the database,
+     * and to check them on login. Hashing runs on a dedicated bounded pool.
      *
-     * @return a PasswordEncoder instance using BCrypt
+     * @param poolSize      number of hashing threads, defaults to the number of CPUs
+     * @param queueCapacity number of hashing calls allowed to wait before rejecting with 503
+     * @param meterRegistry registry for hashing pool metrics
+     * @return a PasswordEncoder instance using BCrypt on the hashing pool
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        // Return a BCryptPasswordEncoder to hash passwords securely
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${todolist.hashing.pool-size:0}") int poolSize,
+                                           @Value("${todolist.hashing.queue-capacity:64}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        // Wrap a BCryptPasswordEncoder to hash passwords securely without pinning request threads
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, meterRegistry);
     }
 
     /**
@@ -47,13 +71,29 @@ public class SecurityConfig {
      * Bean definition for SecurityFilterChain.
      * This configures HTTP security, including CSRF, URL authorization, login, and logout settings.
      *
-     * @param http the HttpSecurity object to configure
+     * @param http            the HttpSecurity object to configure
+     * @param authMode        "session" for server-side sessions, "jwt" for stateless tokens
+     * @param jwtTokenService the JwtTokenService issuing and validating tokens in jwt mode
+     * @param userCache       the UserCache used to resolve the user id put in tokens
+     * @param rateLimiter     the token buckets admitting requests
+     * @param environment     the environment holding the todolist.ratelimit settings
+     * @param meterRegistry   registry for the admission metrics
      * @return the built SecurityFilterChain
      * @throws Exception if there is a problem configuring HTTP security
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${todolist.auth.mode:session}") String authMode,
+                                                   JwtTokenService jwtTokenService,
+                                                   UserCache userCache,
+                                                   RateLimiter rateLimiter,
+                                                   Environment environment,
+                                                   MeterRegistry meterRegistry) throws Exception {
+        boolean stateless = "jwt".equalsIgnoreCase(authMode);
+
         http
+                // Answer 503 when the password hashing pool sheds a login
+                .addFilterBefore(new ServiceBusyFilter(), UsernamePasswordAuthenticationFilter.class)
                 // Disable CSRF protection
                 .csrf(csrf -> csrf.disable())
                 // Configure URL authorization rules
@@ -70,7 +110,9 @@ public class SecurityConfig {
                                 "/swagger-ui.html",
                                 "/swagger-ui/**",
                                 "/swagger-resources/**",
-                                "/webjars/**"
+                                "/webjars/**",
+                                "/actuator/health",     //  health check; metrics scraping needs a user or token
+                                "/auth/token"           //  token login in jwt mode
 
                         ).permitAll()
                         // All other requests require authentication
@@ -94,11 +136,57 @@ public class SecurityConfig {
                         .logoutUrl("/logout")
                         // Set URL to redirect to after successful logout
                         .logoutSuccessUrl("/login.html")
+                        // Drop the token cookie of the stateless mode
+                        .deleteCookies(JwtAuthenticationFilter.ACCESS_TOKEN_COOKIE)
                         .permitAll()
                 );
 
+        if (stateless) {
+            http
+                    // Authenticate every request from its token instead of a session
+                    .addFilterBefore(new JwtAuthenticationFilter(jwtTokenService), UsernamePasswordAuthenticationFilter.class)
+                    .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    // Form login issues a token cookie instead of starting a session
+                    .formLogin(form -> form.successHandler(tokenCookieSuccessHandler(jwtTokenService, userCache)))
+                    // Saved requests would need a session
+                    .requestCache(RequestCacheConfigurer::disable);
+        }
+
+        if (environment.getProperty("todolist.ratelimit.enabled", Boolean.class, true)) {
+            Map<String, Integer> concurrencyCaps = Binder.get(environment)
+                    .bind("todolist.ratelimit.concurrency", Bindable.mapOf(String.class, Integer.class))
+                    .orElse(Map.of());
+            // Added last, so it runs once the user is known and before a login hashes its password
+            http.addFilterBefore(new AdmissionFilter(rateLimiter, concurrencyCaps, meterRegistry),
+                    UsernamePasswordAuthenticationFilter.class);
+        }
+
         // Build and return the configured SecurityFilterChain
         return http.build();
     }
 
+    /**
+     * Success handler of the stateless form login.
+     * Issues a JWT, stores it in an HttpOnly cookie and redirects to the to-do page.
+     *
+     * @param jwtTokenService the JwtTokenService issuing the token
+     * @param userCache       the UserCache used to resolve the user id
+     * @return the AuthenticationSuccessHandler
+     */
+    private AuthenticationSuccessHandler tokenCookieSuccessHandler(JwtTokenService jwtTokenService, UserCache userCache) {
+        return (request, response, authentication) -> {
+            Long userId = userCache.findByUserName(authentication.getName())
+                    .orElseThrow(() -> new IllegalStateException("authenticated user not found"))
+                    .getId();
+            TokenDto token = jwtTokenService.issue(new AuthenticatedUser(userId, authentication.getName()));
+
+            Cookie cookie = new Cookie(JwtAuthenticationFilter.ACCESS_TOKEN_COOKIE, token.getToken());
+            cookie.setHttpOnly(true);
+            cookie.setPath("/");
+            cookie.setMaxAge(token.getExpiresIn().intValue());
+            response.addCookie(cookie);
+            response.sendRedirect("/todo.html");
+        };
+    }
+
 }
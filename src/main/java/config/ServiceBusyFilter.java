@@ -0,0 +1,51 @@
+package config;
+
+import exception.ServiceBusyException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Security filter that turns a ServiceBusyException escaping the filter chain into a 503.
+ * Controllers already map the exception through ServiceBusyAdvice; this covers the login
+ * filter, which hashes passwords outside of Spring MVC.
+ */
+public class ServiceBusyFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServiceBusyException | ServletException e) {
+            if (!isServiceBusy(e) || response.isCommitted()) {
+                throw e;
+            }
+            // Written directly: an error dispatch would be redirected to the login page
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            // Ask clients to back off briefly instead of retrying immediately
+            response.setHeader(HttpHeaders.RETRY_AFTER, ServiceBusyException.RETRY_AFTER_SECONDS);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("service busy, retry later");
+        }
+    }
+
+    /**
+     * Check whether the exception or one of its causes is a ServiceBusyException.
+     */
+    private static boolean isServiceBusy(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ServiceBusyException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
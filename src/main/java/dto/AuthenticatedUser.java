@@ -0,0 +1,33 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.security.Principal;
+
+/**
+ * Principal of a request authenticated with a JWT.
+ * Carries the user id from the token, so no user lookup is needed to serve the request.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthenticatedUser implements Principal {
+
+    // Unique identifier of the user
+    private Long id;
+
+    // Username of the user
+    private String userName;
+
+    /**
+     * Name of the principal, used by controllers through Principal.getName().
+     *
+     * @return the username
+     */
+    @Override
+    public String getName() {
+        return userName;
+    }
+}
@@ -0,0 +1,42 @@
+package dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for the result of a delta sync.
+ * Contains the lists and items changed since the client's sync token, the IDs
+ * of deleted ones, and the token to send with the next sync.
+ */
+@Schema(name = "ChangeSet", description = "lists and items changed since a sync token")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeSetDto {
+
+    // Token to pass as "since" on the next sync
+    private Long syncToken;
+
+    // True when this is the full state and replaces everything the client holds
+    private boolean full;
+
+    // Created or updated lists
+    private List<ToDoListDto> lists = new ArrayList<>();
+
+    // Created or updated items, keyed by the ID of their list
+    private Map<Long, List<ToDoListItemDto>> items = new LinkedHashMap<>();
+
+    // IDs of deleted lists
+    private List<Long> deletedListIds = new ArrayList<>();
+
+    // IDs of deleted items
+    private List<Long> deletedItemIds = new ArrayList<>();
+
+}
@@ -0,0 +1,29 @@
+package dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of a keyset (cursor) paginated read.
+ * Contains the page content and the cursor to pass for the next page.
+ *
+ * @param <T> the type of the page content
+ */
+@Schema(name = "CursorPage", description = "cursor page dto")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageDto<T> {
+
+    // Content of the page, ordered by id
+    private List<T> content = new ArrayList<>();
+
+    // Id of the last element in the page, null when there are no more pages
+    private Long nextCursor;
+
+}
@@ -0,0 +1,36 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the progress of a streaming import.
+ * One is written after every committed chunk, and a last one with done=true at the end.
+ */
+@Schema(name = "ImportProgress", description = "progress of an item import")
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ImportProgressDto {
+
+    // Number of items committed so far
+    private long imported;
+
+    // Number of records skipped because they failed validation
+    private long rejected;
+
+    // Whether the import has ended, successfully or not
+    private boolean done;
+
+    // Reason the import stopped early; items committed before it are kept
+    private String error;
+
+    // Validation messages of the first rejected records
+    private List<String> rejections = new ArrayList<>();
+
+}
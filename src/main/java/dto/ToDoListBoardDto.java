@@ -0,0 +1,32 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for a To-Do list together with its items.
+ * Used by the board endpoint to return all lists of a user in one response.
+ */
+@Schema(name = "ToDoListBoard", description = "ToDoList with its items")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ToDoListBoardDto {
+
+    // Unique identifier of the to-do list
+    private Long id;
+
+    // Title of the to-do list, serialized as "name" in JSON
+    @JsonProperty("name")
+    private String title;
+
+    // Items belonging to the to-do list
+    private List<ToDoListItemDto> items = new ArrayList<>();
+
+}
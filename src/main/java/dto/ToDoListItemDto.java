@@ -7,7 +7,7 @@ import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object (DTO) for a single To-Do list item.
- * Contains the ID, title, and completion status of the item.
+ * Contains the ID, title, completion status and version of the item.
  */
 @Schema(name = "ToDoListItem", description = "ToDoListItem Dto")
 @Data
@@ -24,4 +24,7 @@ public class ToDoListItemDto {
     // Completion status of the item, defaults to false
     private Boolean isDone = false;
 
+    // Version of the item, sent back by clients that want conflict detection
+    private Long version;
+
 }
@@ -0,0 +1,33 @@
+package dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for one exported item together with its list.
+ * Rows are flat, so the same shape is written as NDJSON and CSV.
+ */
+@Schema(name = "ToDoListItemRow", description = "exported item with its list")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ToDoListItemRowDto {
+
+    // Unique identifier of the list holding the item
+    private Long listId;
+
+    // Title of the list holding the item
+    private String listName;
+
+    // Unique identifier of the to-do item
+    private Long id;
+
+    // Title or description of the to-do item
+    private String title;
+
+    // Completion status of the item
+    private Boolean isDone;
+
+}
@@ -0,0 +1,48 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for a To-Do list with the counts of its items.
+ * Used by the summary endpoint, filled straight from one grouped aggregate query.
+ */
+@Schema(name = "ToDoListSummary", description = "ToDoList with total, done and open item counts")
+@Data
+@NoArgsConstructor
+public class ToDoListSummaryDto {
+
+    // Unique identifier of the to-do list
+    private Long id;
+
+    // Title of the to-do list, serialized as "name" in JSON
+    @JsonProperty("name")
+    private String title;
+
+    // Number of items in the list
+    private long total;
+
+    // Number of items marked as done
+    private long done;
+
+    // Number of items not done yet
+    private long open;
+
+    /**
+     * Constructor used by the JPQL constructor expression of the summary query.
+     *
+     * @param id    the ID of the list
+     * @param title the title of the list
+     * @param total the number of items
+     * @param done  the number of done items, null for an empty list
+     */
+    public ToDoListSummaryDto(Long id, String title, Long total, Long done) {
+        this.id = id;
+        this.title = title;
+        this.total = total;
+        this.done = done == null ? 0 : done;
+        this.open = this.total - this.done;
+    }
+}
@@ -0,0 +1,24 @@
+package dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for an issued access token.
+ * Contains the signed JWT and its lifetime in seconds.
+ */
+@Schema(name = "Token", description = "token dto")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenDto {
+
+    // Signed JWT to send as "Authorization: Bearer <token>"
+    private String token;
+
+    // Number of seconds until the token expires
+    private Long expiresIn;
+
+}
@@ -0,0 +1,301 @@
+package event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out hub of the per-user Server-Sent Events channel.
+ * Subscribers are held as async SseEmitters, so an idle connection costs no thread.
+ * A change event carries the user's change sequence number as its id; clients
+ * fetch the change itself from the delta-sync endpoint. With
+ * todolist.events.redis.enabled=true events are published through Redis pub/sub
+ * and every node delivers them to its own subscribers.
+ * <p>
+ * Each subscriber has its own outbox holding only the latest sequence number and a
+ * pending heartbeat, and at most one dispatcher task writing it, so a slow client
+ * never queues events or blocks the delivery to others. A subscriber whose write
+ * has not returned within todolist.events.send-timeout is dropped and reconnects.
+ */
+@Component
+public class ChangeEventHub implements DisposableBean {
+
+    /**
+     * Redis channel carrying "userId:seq" messages between nodes.
+     */
+    public static final String CHANNEL = "todolist:events";
+
+    private final Logger log4j = LogManager.getLogger(ChangeEventHub.class);
+
+    private static final long NONE = -1; // Outbox without a pending event
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>(); // Subscribers by user id
+    private final AtomicInteger subscriberCount = new AtomicInteger(); // Open emitters on this node
+    private final ThreadPoolExecutor dispatcher; // Writes events off the committing thread
+    private final StringRedisTemplate redisTemplate; // Null when events stay on this node
+    private final Duration timeout; // Lifetime of a connection before the client reconnects
+    private final long sendTimeoutNanos; // Longest write before a subscriber is dropped
+
+    private final Counter delivered; // Events written to subscribers
+    private final Counter dropped; // Subscribers dropped for writing too slowly
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param redisTemplate   provider of the StringRedisTemplate used to publish events
+     * @param meterRegistry   registry for subscriber and delivery metrics
+     * @param dispatchThreads most threads writing events to subscribers; idle ones exit
+     * @param timeout         lifetime of a connection before the client reconnects
+     * @param sendTimeout     longest write to a subscriber before it is dropped
+     * @param redisEnabled    whether events are fanned out through Redis pub/sub
+     */
+    public ChangeEventHub(ObjectProvider<StringRedisTemplate> redisTemplate, MeterRegistry meterRegistry,
+                          @Value("${todolist.events.dispatch-threads:16}") int dispatchThreads,
+                          @Value("${todolist.events.timeout:30m}") Duration timeout,
+                          @Value("${todolist.events.send-timeout:10s}") Duration sendTimeout,
+                          @Value("${todolist.events.redis.enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisEnabled ? redisTemplate.getIfAvailable() : null;
+        this.timeout = timeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        // Threads are started up to the maximum before tasks queue, so a stuck write holds one thread only
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher.allowCoreThreadTimeOut(true);
+        Gauge.builder("todolist.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open Server-Sent Events connections")
+                .register(meterRegistry);
+        this.delivered = Counter.builder("todolist.events.delivered")
+                .description("Change events written to subscribers")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("todolist.events.dropped")
+                .description("Subscribers dropped for writing too slowly")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a channel for a user.
+     * When the client's last event id differs from the current sequence number,
+     * one change event is sent right away so it catches up through delta sync.
+     *
+     * @param userId      the ID of the user
+     * @param lastEventId the Last-Event-ID sent by a reconnecting client, or null
+     * @param currentSeq  the user's current change sequence number
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId, long currentSeq) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        subscribers.compute(userId, (id, set) -> {
+            Set<Subscriber> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+        subscriberCount.incrementAndGet();
+
+        Runnable remove = () -> unsubscribe(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        if (lastEventId == null || lastEventId != currentSeq) {
+            subscriber.offer(currentSeq);
+        }
+        return emitter;
+    }
+
+    /**
+     * Announce a committed change of a user to every subscriber of that user,
+     * on all nodes when Redis fan-out is enabled.
+     *
+     * @param userId the ID of the user
+     * @param seq    the change sequence number of the change
+     */
+    public void publish(Long userId, long seq) {
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.convertAndSend(CHANNEL, userId + ":" + seq);
+                return;
+            } catch (DataAccessException e) {
+                // This node's subscribers are still told, other nodes catch up on reconnect
+                log4j.warn("change event publish failed: " + e.getMessage());
+            }
+        }
+        deliver(userId, seq);
+    }
+
+    /**
+     * Handle a "userId:seq" message received from the Redis channel.
+     *
+     * @param message the message body
+     */
+    public void onMessage(String message) {
+        int separator = message.indexOf(':');
+        try {
+            deliver(Long.valueOf(message.substring(0, separator)), Long.parseLong(message.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log4j.warn("malformed change event: " + message);
+        }
+    }
+
+    /**
+     * Send a comment line to every subscriber, so proxies keep idle connections
+     * open and connections of vanished clients are detected and dropped.
+     */
+    @Scheduled(fixedDelayString = "${todolist.events.heartbeat-interval:25000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::offerHeartbeat));
+    }
+
+    /**
+     * Drop the subscribers whose current write has outlasted todolist.events.send-timeout.
+     * They get no further events; their emitter is completed by the write's own thread
+     * once it returns, since the emitter is locked while the write is blocked.
+     */
+    @Scheduled(fixedDelayString = "${todolist.events.laggard-check-interval:1000}")
+    public void dropLaggards() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            long started = subscriber.sendStarted;
+            if (started != 0 && now - started > sendTimeoutNanos && !subscriber.dropped) {
+                subscriber.dropped = true;
+                unsubscribe(subscriber);
+                dropped.increment();
+                log4j.warn("dropped slow change event subscriber of user " + subscriber.userId);
+            }
+        }));
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            try {
+                subscriber.emitter.complete();
+            } catch (IllegalStateException e) {
+                // The connection is already gone
+            }
+        }));
+    }
+
+    private void deliver(Long userId, long seq) {
+        Set<Subscriber> set = subscribers.get(userId);
+        if (set != null) {
+            set.forEach(subscriber -> subscriber.offer(seq));
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        // Runs atomically with subscribe for the same user, so a subscriber is never added to a dropped set
+        subscribers.computeIfPresent(subscriber.userId, (id, set) -> {
+            if (set.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * A single connection with its outbox. Change events only tell the client to sync,
+     * so a newer sequence number replaces one not written yet and the outbox never grows.
+     */
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final AtomicLong pendingSeq = new AtomicLong(NONE); // Latest sequence number not written yet
+        private final AtomicBoolean pendingHeartbeat = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean(); // Whether a dispatcher task owns the outbox
+
+        private volatile long sendStarted; // Start of the write in progress, 0 when none
+        private volatile boolean dropped; // Set once the subscriber was dropped as too slow
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(long seq) {
+            pendingSeq.accumulateAndGet(seq, Math::max);
+            schedule();
+        }
+
+        private void offerHeartbeat() {
+            pendingHeartbeat.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!dropped && scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        /**
+         * Write the outbox until it is empty, on one dispatcher thread at a time.
+         */
+        private void drain() {
+            try {
+                while (!dropped) {
+                    long seq = pendingSeq.getAndSet(NONE);
+                    boolean heartbeat = pendingHeartbeat.getAndSet(false);
+                    if (seq == NONE && !heartbeat) {
+                        break;
+                    }
+                    sendStarted = System.nanoTime();
+                    try {
+                        if (seq != NONE) {
+                            emitter.send(SseEmitter.event()
+                                    .id(String.valueOf(seq))
+                                    .name("change")
+                                    .data("{\"seq\":" + seq + "}"));
+                            delivered.increment();
+                        } else {
+                            emitter.send(SseEmitter.event().comment("heartbeat"));
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        unsubscribe(this);
+                        return;
+                    } finally {
+                        sendStarted = 0;
+                    }
+                }
+                if (dropped) {
+                    // The client reconnects with its last event id and catches up through delta sync
+                    emitter.complete();
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // Something offered after the last check and before the flag was cleared must not wait for the next offer
+            if (pendingSeq.get() != NONE || pendingHeartbeat.get()) {
+                schedule();
+            }
+        }
+    }
+}
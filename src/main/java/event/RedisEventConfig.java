@@ -0,0 +1,38 @@
+package event;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Subscribes this node to the Redis channel of change events, so events
+ * published by any node reach the subscribers connected here.
+ * Only active with todolist.events.redis.enabled=true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todolist.events.redis.enabled", havingValue = "true")
+public class RedisEventConfig {
+
+    /**
+     * Bean definition for the listener container receiving change events.
+     *
+     * @param connectionFactory the Redis connection factory
+     * @param changeEventHub    the hub delivering received events
+     * @return the RedisMessageListenerContainer
+     */
+    @Bean
+    public RedisMessageListenerContainer changeEventListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                      ChangeEventHub changeEventHub) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> changeEventHub.onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(ChangeEventHub.CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,27 @@
+package exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Custom exception thrown when an entity was changed by someone else since the client read it.
+ * Maps to HTTP status 409 CONFLICT when thrown in a Spring REST controller.
+ */
+@ResponseStatus(HttpStatus.CONFLICT) // Sets the HTTP response status to 409 CONFLICT
+public class ConflictException extends Exception {
+
+    /**
+     * Default no-argument constructor.
+     */
+    public ConflictException() {
+    }
+
+    /**
+     * Constructor with a custom exception message.
+     *
+     * @param message the exception message
+     */
+    public ConflictException(String message) {
+        super(message);
+    }
+}
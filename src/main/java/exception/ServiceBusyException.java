@@ -0,0 +1,30 @@
+package exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Custom exception thrown when a bounded resource is saturated and the request is shed.
+ * Maps to HTTP status 503 SERVICE UNAVAILABLE with a Retry-After header when thrown in a Spring REST controller.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE) // Sets the HTTP response status to 503 SERVICE UNAVAILABLE
+public class ServiceBusyException extends RuntimeException {
+
+    // Seconds clients are asked to wait before retrying a shed request
+    public static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * Default no-argument constructor.
+     */
+    public ServiceBusyException() {
+    }
+
+    /**
+     * Constructor with a custom exception message.
+     *
+     * @param message the exception message
+     */
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
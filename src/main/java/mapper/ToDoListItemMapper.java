@@ -5,6 +5,7 @@ import dto.ToDoListItemDto;
 import model.ToDoListEntity;
 import model.ToDoListItemEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
@@ -17,20 +18,33 @@ public interface ToDoListItemMapper {
 
     /**
      * Convert a ToDoListItemDto to a ToDoListItemEntity.
+     * The version is managed by Hibernate and never taken from the client.
      *
      * @param ToDoListItemDto the DTO to convert
      * @return the corresponding entity
      */
+    @Mapping(target = "version", ignore = true)
     ToDoListItemEntity toEntity(ToDoListItemDto ToDoListItemDto);
 
     /**
      * Convert a ToDoListEntity to a ToDoListItemDto.
+     * A list has neither a done state nor a version, so both keep their defaults.
      *
      * @param ToDoListItemEntity the entity to convert
      * @return the corresponding DTO
      */
+    @Mapping(target = "isDone", ignore = true)
+    @Mapping(target = "version", ignore = true)
     ToDoListItemDto toDto(ToDoListEntity ToDoListItemEntity);
 
+    /**
+     * Convert a ToDoListItemEntity to a ToDoListItemDto.
+     *
+     * @param ToDoListItemEntity the entity to convert
+     * @return the corresponding DTO
+     */
+    ToDoListItemDto toDto(ToDoListItemEntity ToDoListItemEntity);
+
     /**
      * Convert a list of ToDoListItemDto objects to a list of ToDoListItemEntity objects.
      *
@@ -1,8 +1,10 @@
 package mapper;
 
+import dto.ToDoListBoardDto;
 import dto.ToDoListDto;
 import model.ToDoListEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
@@ -10,7 +12,7 @@ import java.util.List;
  * Mapper interface for converting between ToDoList DTOs and Entities.
  * Uses MapStruct to generate the implementation at compile time.
  */
-@Mapper(componentModel = "spring") // Tells MapStruct to generate a Spring Bean for dependency injection
+@Mapper(componentModel = "spring", uses = ToDoListItemMapper.class) // Tells MapStruct to generate a Spring Bean for dependency injection
 public interface ToDoListMapper {
 
     /**
@@ -44,4 +46,21 @@ public interface ToDoListMapper {
      * @return the list of corresponding DTOs
      */
     List<ToDoListDto> toDtoList(List<ToDoListEntity> ToDoListEntities);
+
+    /**
+     * Convert a ToDoListEntity and its items to a ToDoListBoardDto.
+     *
+     * @param ToDoListEntity the entity to convert, with its items already fetched
+     * @return the corresponding board DTO
+     */
+    @Mapping(source = "toDoListItems", target = "items")
+    ToDoListBoardDto toBoardDto(ToDoListEntity ToDoListEntity);
+
+    /**
+     * Convert a list of ToDoListEntity objects to a list of ToDoListBoardDto objects.
+     *
+     * @param ToDoListEntities the list of entities, with their items already fetched
+     * @return the list of corresponding board DTOs
+     */
+    List<ToDoListBoardDto> toBoardDtoList(List<ToDoListEntity> ToDoListEntities);
 }
@@ -0,0 +1,72 @@
+package model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+
+/**
+ * JPA Entity recording the latest change of a list or an item.
+ * There is one row per entity, overwritten by every later change, so the log
+ * grows with the number of entities and not with the number of writes.
+ * Deleted entities keep their row as a tombstone.
+ */
+@Entity
+@Table(name = "todo_change", indexes = @Index(name = "ix_todo_change_user_id_seq", columnList = "user_id, seq"))
+@IdClass(ChangeEntity.Key.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeEntity {
+
+    // Kind of the changed entity
+    @Id
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "entity_type", length = 8)
+    private Type entityType;
+
+    // ID of the changed list or item
+    @Id
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    // Owner of the changed entity
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // List of the changed entity, the list itself for lists
+    @Column(name = "list_id", nullable = false)
+    private Long listId;
+
+    // Change sequence number of the owner at the time of the change
+    @Column(nullable = false)
+    private Long seq;
+
+    // Whether the change was a deletion
+    @Column(nullable = false)
+    private Boolean deleted;
+
+    /**
+     * Kinds of entities that are recorded.
+     */
+    public enum Type {
+        LIST,
+        ITEM
+    }
+
+    /**
+     * Composite primary key of a change.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Type entityType;
+        private Long entityId;
+    }
+}
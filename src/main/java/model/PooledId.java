@@ -0,0 +1,26 @@
+package model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity id as generated by PooledSequenceGenerator.
+ * Ids are handed out from blocks reserved in one round-trip, so inserts need no
+ * per-row id lookup and can be sent as JDBC batches.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PooledId {
+
+    /**
+     * Name of the sequence, or of the table emulating it on MySQL.
+     *
+     * @return the sequence name
+     */
+    String sequenceName();
+}
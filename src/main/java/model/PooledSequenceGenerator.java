@@ -0,0 +1,53 @@
+package model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator using the pooled-lo optimizer with a configurable block size.
+ * On MySQL the sequence is emulated with a table, which is read and bumped once
+ * per block instead of once per insert. The block size is taken from the
+ * todolist.id.block_size Hibernate setting.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    // Hibernate setting holding the number of ids reserved per round-trip
+    public static final String BLOCK_SIZE_SETTING = "todolist.id.block_size";
+
+    // Block size used when the setting is absent
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    // Sequence name from the annotation
+    private final String sequenceName;
+
+    /**
+     * Constructor called by Hibernate for ids annotated with PooledId.
+     *
+     * @param config the annotation on the id
+     */
+    public PooledSequenceGenerator(PooledId config) {
+        this.sequenceName = config.sequenceName();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Object blockSize = serviceRegistry.requireService(ConfigurationService.class)
+                .getSettings()
+                .getOrDefault(BLOCK_SIZE_SETTING, DEFAULT_BLOCK_SIZE);
+
+        parameters.setProperty(SEQUENCE_PARAM, sequenceName);
+        parameters.setProperty(INCREMENT_PARAM, blockSize.toString());
+        // pooled-lo treats the stored value as the start of the block, so ids already
+        // handed out by the previous pooled strategy are never reused
+        parameters.setProperty(OptimizableGenerator.OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
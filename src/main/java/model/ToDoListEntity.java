@@ -3,7 +3,11 @@ package model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,26 +17,32 @@ import java.util.List;
  * Contains a list of To-Do items and is linked to a User.
  */
 @Entity
-@Table(name = "todo_list")
+@Table(name = "todo_list", indexes = @Index(name = "ix_todo_list_user_id_title", columnList = "user_id, title"))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "todolist") // Second-level cache, see HibernateCacheConfig
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ToDoListEntity {
 
-    // Primary key for the entity, auto-generated
+    // Primary key for the entity, allocated in blocks from a pooled sequence
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @PooledId(sequenceName = "to_do_list_entity_seq")
     private Long id;
 
     // Title of the to-do list
     private String title;
 
     // Many-to-one relationship with UserEntity, fetch lazily
+    // Left out of toString, equals and hashCode, which would otherwise load it
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id") // Foreign key column in the todo_list table
     private UserEntity userEntity;
 
     // One-to-many relationship with ToDoListItemEntity, cascade all operations, fetch lazily
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "toDoListEntity")
     private List<ToDoListItemEntity> toDoListItems = new ArrayList<>();
 }
@@ -3,22 +3,24 @@ package model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * JPA Entity representing a single item in a To-Do list.
- * Contains title, completion status, and is linked to a ToDoListEntity.
+ * Contains title, completion status, a version for optimistic locking, and is linked to a ToDoListEntity.
  */
 @Entity
-@Table(name = "todo_list_item")
+@Table(name = "todo_list_item", indexes = @Index(name = "ix_todo_list_item_todolist_id_is_done", columnList = "todolist_id, is_done"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class ToDoListItemEntity {
 
-    // Primary key for the entity, auto-generated
+    // Primary key for the entity, allocated in blocks from a pooled sequence
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @PooledId(sequenceName = "to_do_list_item_entity_seq")
     private Long id;
 
     // Title or description of the to-do item
@@ -28,7 +30,15 @@ public class ToDoListItemEntity {
     @Column(name = "is_done", nullable = false)
     private Boolean isDone = false;
 
+    // Optimistic lock version, bumped by every update of the item
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // Many-to-one relationship with ToDoListEntity, fetch lazily
+    // Left out of toString, equals and hashCode, which would otherwise load it
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "todolist_id") // Foreign key column linking to the parent ToDoListEntity
     private ToDoListEntity toDoListEntity;
@@ -3,7 +3,11 @@ package model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,15 +17,16 @@ import java.util.List;
  * Contains username, password, and a list of To-Do lists associated with the user.
  */
 @Entity
-@Table(name = "user")
+@Table(name = "user", uniqueConstraints = @UniqueConstraint(name = "ux_user_user_name", columnNames = "user_name"))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user") // Second-level cache, see HibernateCacheConfig
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class UserEntity {
 
-    // Primary key for the entity, auto-generated
+    // Primary key for the entity, allocated in blocks from a pooled sequence
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @PooledId(sequenceName = "user_entity_seq")
     private Long id;
 
     // Username of the user
@@ -31,6 +36,9 @@ public class UserEntity {
     private String password;
 
     // One-to-many relationship with ToDoListEntity, cascade all operations, fetch lazily
+    // Left out of toString, equals and hashCode, which would otherwise load it
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "userEntity")
     private List<ToDoListEntity> toDoLists = new ArrayList<>();
 }
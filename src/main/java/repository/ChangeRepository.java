@@ -0,0 +1,91 @@
+package repository;
+
+import jakarta.persistence.QueryHint;
+import model.ChangeEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for ChangeEntity.
+ * Changes are written with set-based upserts, one statement per write path.
+ * The upserts are synchronized with the todo_change table only; a native statement
+ * without query spaces would clear the whole second-level cache.
+ */
+@Repository // Marks this interface as a Spring repository bean
+public interface ChangeRepository extends JpaRepository<ChangeEntity, ChangeEntity.Key> {
+
+    /**
+     * Find the changes of a user made after a sequence number.
+     *
+     * @param userId the ID of the user
+     * @param seq    only changes with a greater sequence number are returned
+     * @return the changes ordered by sequence number
+     */
+    List<ChangeEntity> findByUserIdAndSeqGreaterThanOrderBySeq(Long userId, Long seq);
+
+    /**
+     * Record a change of the given lists of a user.
+     *
+     * @param ids     the IDs of the lists
+     * @param userId  the ID of the owning user
+     * @param seq     the change sequence number
+     * @param deleted whether the lists are being deleted
+     * @return the number of affected rows
+     */
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "todo_change"))
+    @Query(value = "insert into todo_change (entity_type, entity_id, user_id, list_id, seq, deleted) " +
+            "select 'LIST', l.id, l.user_id, l.id, :seq, :deleted from todo_list l " +
+            "where l.id in (:ids) and l.user_id = :userId " +
+            "on duplicate key update seq = values(seq), deleted = values(deleted)", nativeQuery = true)
+    int recordLists(@Param("ids") Collection<Long> ids, @Param("userId") Long userId,
+                    @Param("seq") long seq, @Param("deleted") boolean deleted);
+
+    /**
+     * Record a change of the given items of a user.
+     * The session is not flushed for the call, since dirty checking a large session
+     * per chunk costs more than the statement; items must be flushed before.
+     *
+     * @param ids     the IDs of the items, all in lists of the user
+     * @param userId  the ID of the user owning their lists
+     * @param seq     the change sequence number
+     * @param deleted whether the items are being deleted
+     * @return the number of affected rows
+     */
+    @Modifying
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "todo_change")})
+    @Query(value = "insert into todo_change (entity_type, entity_id, user_id, list_id, seq, deleted) " +
+            "select 'ITEM', i.id, :userId, i.todolist_id, :seq, :deleted from todo_list_item i " +
+            "where i.id in (:ids) " +
+            "on duplicate key update seq = values(seq), deleted = values(deleted)", nativeQuery = true)
+    int recordItems(@Param("ids") Collection<Long> ids, @Param("userId") Long userId,
+                    @Param("seq") long seq, @Param("deleted") boolean deleted);
+
+    /**
+     * Record a change of every item of the given lists of a user.
+     *
+     * @param listIds the IDs of the lists
+     * @param userId  the ID of the user owning the lists
+     * @param seq     the change sequence number
+     * @param deleted whether the items are being deleted
+     * @return the number of affected rows
+     */
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "todo_change"))
+    @Query(value = "insert into todo_change (entity_type, entity_id, user_id, list_id, seq, deleted) " +
+            "select 'ITEM', i.id, l.user_id, l.id, :seq, :deleted from todo_list_item i " +
+            "join todo_list l on l.id = i.todolist_id " +
+            "where l.id in (:listIds) and l.user_id = :userId " +
+            "on duplicate key update seq = values(seq), deleted = values(deleted)", nativeQuery = true)
+    int recordItemsOfLists(@Param("listIds") Collection<Long> listIds, @Param("userId") Long userId,
+                           @Param("seq") long seq, @Param("deleted") boolean deleted);
+}
@@ -1,7 +1,15 @@
 package repository;
 
+import dto.ToDoListSummaryDto;
+import jakarta.persistence.QueryHint;
 import model.ToDoListEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -48,9 +56,89 @@ public interface ToDoListRepository extends JpaRepository<ToDoListEntity, Long>
 
     /**
      * Find all ToDoListEntity objects belonging to a specific user by user ID.
+     * The result is kept in the query cache until the todo_list table changes.
      *
      * @param userEntityId the ID of the user
      * @return a list of ToDoListEntity objects
      */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "todolist-query")})
     List<ToDoListEntity> findByUserEntity_Id(Long userEntityId);
+
+    /**
+     * Find all ToDoListEntity objects of a user together with their items.
+     * Items are join-fetched so the whole board is loaded with a single query.
+     *
+     * @param userEntityId the ID of the user
+     * @return a list of ToDoListEntity objects with initialized items
+     */
+    @Query("select distinct l from ToDoListEntity l left join fetch l.toDoListItems " +
+            "where l.userEntity.id = :userId order by l.id")
+    List<ToDoListEntity> findBoardByUserEntity_Id(@Param("userId") Long userEntityId);
+
+    /**
+     * Find all ToDoLists of a user with the total and done counts of their items.
+     * Counted in one grouped query over the (todolist_id, is_done) index, so no item row is loaded.
+     *
+     * @param userEntityId the ID of the user
+     * @return one summary per list, ordered by id
+     */
+    @Query("select new dto.ToDoListSummaryDto(l.id, l.title, count(i.id), " +
+            "sum(case when i.isDone = true then 1L else 0L end)) " +
+            "from ToDoListEntity l left join l.toDoListItems i " +
+            "where l.userEntity.id = :userId group by l.id, l.title order by l.id")
+    List<ToDoListSummaryDto> findSummariesByUserEntity_Id(@Param("userId") Long userEntityId);
+
+    /**
+     * Find the next page of ToDoListEntity objects of a user using keyset pagination on id.
+     *
+     * @param userEntityId the ID of the user
+     * @param afterId      only lists with an id greater than this are returned
+     * @param limit        the maximum number of lists to return
+     * @return a list of ToDoListEntity objects ordered by id
+     */
+    List<ToDoListEntity> findByUserEntity_IdAndIdGreaterThanOrderByIdAsc(Long userEntityId, Long afterId, Limit limit);
+
+    /**
+     * Find the ID of the user owning a ToDoList.
+     * Every item write resolves its parent list this way, so the result is kept in the query cache.
+     *
+     * @param id the ID of the to-do list
+     * @return an Optional containing the user ID if the list exists, empty otherwise
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "todolist-query")})
+    @Query("select l.userEntity.id from ToDoListEntity l where l.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    /**
+     * Find the IDs of all ToDoLists of a user.
+     *
+     * @param userEntityId the ID of the user
+     * @return the IDs of the user's lists
+     */
+    @Query("select l.id from ToDoListEntity l where l.userEntity.id = :userId")
+    List<Long> findIdsByUserEntity_Id(@Param("userId") Long userEntityId);
+
+    /**
+     * Delete a ToDoList with a single DELETE statement, without loading it or its items.
+     * Its items must be deleted first.
+     *
+     * @param id the ID of the to-do list
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ToDoListEntity l where l.id = :id")
+    int deleteByIdInBulk(@Param("id") Long id);
+
+    /**
+     * Delete all ToDoLists of a user with a single DELETE statement.
+     * Their items must be deleted first.
+     *
+     * @param userEntityId the ID of the user
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ToDoListEntity l where l.userEntity.id = :userId")
+    int deleteByUserEntity_IdInBulk(@Param("userId") Long userEntityId);
 }
@@ -1,10 +1,21 @@
 package repository;
 
+import dto.ToDoListItemDto;
+import dto.ToDoListItemRowDto;
+import jakarta.persistence.LockModeType;
 import model.ToDoListItemEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for ToDoListItemEntity.
@@ -20,4 +31,161 @@ public interface TodoListItemRepository extends JpaRepository<ToDoListItemEntity
      * @return a list of ToDoListItemEntity objects
      */
     List<ToDoListItemEntity> findByToDoListEntity_Id(Long toDoListEntityId);
+
+    /**
+     * Find the next page of items of a ToDoListEntity using keyset pagination on id.
+     *
+     * @param toDoListEntityId the ID of the parent ToDoListEntity
+     * @param afterId          only items with an id greater than this are returned
+     * @param limit            the maximum number of items to return
+     * @return a list of ToDoListItemEntity objects ordered by id
+     */
+    List<ToDoListItemEntity> findByToDoListEntity_IdAndIdGreaterThanOrderByIdAsc(Long toDoListEntityId, Long afterId, Limit limit);
+
+    /**
+     * Find the next batch of items of a ToDoListEntity as DTOs using keyset pagination on id.
+     * Used to stream a list batch by batch; the projection keeps entities out of the
+     * persistence context, and each batch is a short, fully buffered query in its own
+     * read-only transaction.
+     *
+     * @param toDoListEntityId the ID of the parent ToDoListEntity
+     * @param afterId          only items with an id greater than this are returned
+     * @param limit            the maximum number of items to return
+     * @return a list of ToDoListItemDto objects ordered by id
+     */
+    @Transactional(readOnly = true)
+    @Query("select new dto.ToDoListItemDto(i.id, i.title, i.isDone, i.version) from ToDoListItemEntity i " +
+            "where i.toDoListEntity.id = :toDoListId and i.id > :afterId order by i.id")
+    List<ToDoListItemDto> findDtosByToDoListEntity_IdAfter(@Param("toDoListId") Long toDoListEntityId,
+                                                          @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Find the next batch of items of a user together with their list, using keyset
+     * pagination on list and item id. Used to export an account batch by batch, each
+     * batch in its own read-only transaction.
+     *
+     * @param userEntityId the ID of the user
+     * @param afterListId  list id of the last row of the previous batch
+     * @param afterId      item id of the last row of the previous batch
+     * @param limit        the maximum number of rows to return
+     * @return a list of ToDoListItemRowDto objects ordered by list and item id
+     */
+    @Transactional(readOnly = true)
+    @Query("select new dto.ToDoListItemRowDto(l.id, l.title, i.id, i.title, i.isDone) " +
+            "from ToDoListItemEntity i join i.toDoListEntity l where l.userEntity.id = :userId " +
+            "and (l.id > :afterListId or (l.id = :afterListId and i.id > :afterId)) order by l.id, i.id")
+    List<ToDoListItemRowDto> findRowsByUserIdAfter(@Param("userId") Long userEntityId, @Param("afterListId") Long afterListId,
+                                                   @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Find the ID of the user owning an item.
+     *
+     * @param id the ID of the item
+     * @return the ID of the user, or empty if the item does not exist
+     */
+    @Query("select i.toDoListEntity.userEntity.id from ToDoListItemEntity i where i.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    /**
+     * Find the IDs of the lists that own the given items.
+     *
+     * @param ids the IDs of the items
+     * @return the distinct IDs of the parent lists
+     */
+    @Query("select distinct i.toDoListEntity.id from ToDoListItemEntity i where i.id in :ids")
+    List<Long> findToDoListIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find which of the given items are in lists of a user.
+     *
+     * @param ids          the IDs of the items
+     * @param userEntityId the ID of the user
+     * @return the IDs of the items owned by the user
+     */
+    @Query("select i.id from ToDoListItemEntity i where i.id in :ids and i.toDoListEntity.userEntity.id = :userId")
+    List<Long> findIdsByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userEntityId);
+
+    /**
+     * Set the "isDone" status of many items of a user with a single UPDATE statement.
+     * Items in lists of other users are left alone.
+     *
+     * @param ids          the IDs of the items
+     * @param userEntityId the ID of the user owning the items
+     * @param isDone       the new status
+     * @return the number of updated rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ToDoListItemEntity i set i.isDone = :isDone, i.version = i.version + 1 where i.id in :ids " +
+            "and i.toDoListEntity.id in (select l.id from ToDoListEntity l where l.userEntity.id = :userId)")
+    int updateIsDoneByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userEntityId,
+                                    @Param("isDone") boolean isDone);
+
+    /**
+     * Toggle the "isDone" status of an item with a single atomic UPDATE statement.
+     * When a version is given the row is only updated if it still has that version.
+     *
+     * @param id      the ID of the item
+     * @param version the expected version, or null to toggle unconditionally
+     * @return the number of updated rows, 0 if the item is missing or the version differs
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ToDoListItemEntity i " +
+            "set i.isDone = case when i.isDone = true then false else true end, i.version = i.version + 1 " +
+            "where i.id = :id and (:version is null or i.version = :version)")
+    int toggleIsDone(@Param("id") Long id, @Param("version") Long version);
+
+    /**
+     * Delete many items with a single DELETE statement.
+     *
+     * @param ids the IDs of the items
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ToDoListItemEntity i where i.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Delete many items of a user with a single DELETE statement.
+     * Items in lists of other users are left alone.
+     *
+     * @param ids          the IDs of the items
+     * @param userEntityId the ID of the user owning the items
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ToDoListItemEntity i where i.id in :ids " +
+            "and i.toDoListEntity.id in (select l.id from ToDoListEntity l where l.userEntity.id = :userId)")
+    int deleteByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userEntityId);
+
+    /**
+     * Delete all items of a list with a single DELETE statement.
+     *
+     * @param toDoListEntityId the ID of the parent ToDoListEntity
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ToDoListItemEntity i where i.toDoListEntity.id = :toDoListId")
+    int deleteByToDoListEntity_IdInBulk(@Param("toDoListId") Long toDoListEntityId);
+
+    /**
+     * Delete all items of every list of a user with a single DELETE statement.
+     *
+     * @param userEntityId the ID of the user owning the lists
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ToDoListItemEntity i where i.toDoListEntity.id in " +
+            "(select l.id from ToDoListEntity l where l.userEntity.id = :userId)")
+    int deleteByUserIdInBulk(@Param("userId") Long userEntityId);
+
+    /**
+     * Find and lock the IDs of all completed items of a list.
+     * The rows stay locked until commit, so they cannot be toggled before they are deleted.
+     *
+     * @param toDoListEntityId the ID of the parent ToDoListEntity
+     * @return the IDs of the completed items
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i.id from ToDoListItemEntity i where i.toDoListEntity.id = :toDoListId and i.isDone = true")
+    List<Long> findCompletedIdsByToDoListEntity_Id(@Param("toDoListId") Long toDoListEntityId);
 }
@@ -1,7 +1,13 @@
 package repository;
 
+import jakarta.persistence.QueryHint;
 import model.UserEntity;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -23,9 +29,36 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
     /**
      * Find a user by their username.
+     * The result is kept in the query cache, so a repeated lookup costs no statement.
      *
      * @param userName the username of the user
      * @return an Optional containing the UserEntity if found, empty otherwise
      */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "user-query")})
     Optional<UserEntity> findByUserName(String userName);
+
+    /**
+     * Increment the change sequence number of a user.
+     * The row stays locked until commit, so the sequence numbers of a user are
+     * committed in order.
+     * Only the unmapped change_seq column changes, so the statement is synchronized
+     * with the change log's table; otherwise Hibernate would clear the whole second-level cache.
+     *
+     * @param id the ID of the user
+     * @return the number of updated rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "todo_change"))
+    @Query(value = "update user set change_seq = change_seq + 1 where id = :id", nativeQuery = true)
+    int incrementChangeSeqById(@Param("id") Long id);
+
+    /**
+     * Find the last change sequence number of a user.
+     *
+     * @param id the ID of the user
+     * @return an Optional containing the sequence number if the user exists, empty otherwise
+     */
+    @Query(value = "select change_seq from user where id = :id", nativeQuery = true)
+    Optional<Long> findChangeSeqById(@Param("id") Long id);
 }
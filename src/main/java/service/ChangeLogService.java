@@ -0,0 +1,248 @@
+package service;
+
+import dto.ChangeSetDto;
+import event.ChangeEventHub;
+import mapper.ToDoListItemMapper;
+import mapper.ToDoListMapper;
+import model.ChangeEntity;
+import model.ToDoListEntity;
+import model.ToDoListItemEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import repository.ChangeRepository;
+import repository.ToDoListRepository;
+import repository.TodoListItemRepository;
+import repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class recording changes of lists and items and serving delta syncs.
+ * Every write takes the next value of the owner's change sequence and stores it
+ * on the changed rows of the change log, so a sync reads only the changes made
+ * after the client's token.
+ * <p>
+ * Taking the sequence locks the owner's user row until commit. Writes call lockUser
+ * before touching any list or item row, so every write locks the user row first and
+ * two writes of the same user can never wait on each other's rows in opposite order.
+ */
+@Service
+public class ChangeLogService {
+
+    private final ChangeRepository changeRepository; // Repository for ChangeEntity
+    private final UserRepository userRepository; // Holds the per-user change sequence
+    private final ToDoListRepository toDoListRepository; // Repository for ToDoListEntity
+    private final TodoListItemRepository toDoListItemRepository; // Repository for ToDoListItemEntity
+    private final ToDoListMapper toDoListMapper; // Mapper for ToDoList DTOs
+    private final ToDoListItemMapper toDoListItemMapper; // Mapper for ToDoListItem DTOs
+    private final ChangeEventHub changeEventHub; // Pushes committed changes to subscribers
+
+    private static final int MAX_IDS_PER_STATEMENT = 1000; // Upper bound for the IDs of one upsert
+
+    // Transaction resource holding the sequence numbers taken by the transaction, per user
+    private static final Object TAKEN_SEQS = new Object();
+
+    /**
+     * Constructor for dependency injection.
+     */
+    public ChangeLogService(ChangeRepository changeRepository, UserRepository userRepository,
+                            ToDoListRepository toDoListRepository, TodoListItemRepository toDoListItemRepository,
+                            ToDoListMapper toDoListMapper, ToDoListItemMapper toDoListItemMapper,
+                            ChangeEventHub changeEventHub) {
+        this.changeRepository = changeRepository;
+        this.userRepository = userRepository;
+        this.toDoListRepository = toDoListRepository;
+        this.toDoListItemRepository = toDoListItemRepository;
+        this.toDoListMapper = toDoListMapper;
+        this.toDoListItemMapper = toDoListItemMapper;
+        this.changeEventHub = changeEventHub;
+    }
+
+    /**
+     * Get the current change sequence number of a user, the token a sync made now would return.
+     *
+     * @param userId the ID of the user
+     * @return the current change sequence number, 0 before the first change
+     */
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public long getSyncToken(Long userId) {
+        return userRepository.findChangeSeqById(userId).orElse(0L);
+    }
+
+    /**
+     * Lock the user row of a write's owner, taking the sequence number its changes will be
+     * recorded with. Must be called before the write touches any list or item row.
+     *
+     * @param userId the ID of the user owning the changed lists and items
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public void lockUser(Long userId) {
+        nextSeq(userId);
+    }
+
+    /**
+     * Record a change of lists of a user. Deletions must be recorded before the rows are deleted.
+     *
+     * @param userId      the ID of the user owning the lists
+     * @param toDoListIds the IDs of the lists
+     * @param deleted     whether the lists are being deleted
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public void recordLists(Long userId, Collection<Long> toDoListIds, boolean deleted) {
+        if (!toDoListIds.isEmpty()) {
+            changeRepository.recordLists(toDoListIds, userId, nextSeq(userId), deleted);
+        }
+    }
+
+    /**
+     * Record a change of items of a user. Deletions must be recorded before the rows are deleted.
+     *
+     * @param userId  the ID of the user owning the items' lists
+     * @param itemIds the IDs of the items
+     * @param deleted whether the items are being deleted
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public void recordItems(Long userId, Collection<Long> itemIds, boolean deleted) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        long seq = nextSeq(userId);
+        changeRepository.flush(); // Items created in this transaction must exist before they are selected
+
+        // Long IN lists are split, so each statement stays a cheap primary key lookup
+        List<Long> ids = List.copyOf(itemIds);
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            changeRepository.recordItems(ids.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, ids.size())),
+                    userId, seq, deleted);
+        }
+    }
+
+    /**
+     * Record the deletion of lists of a user together with all their items.
+     * Must be called before the rows are deleted.
+     *
+     * @param userId      the ID of the user owning the lists
+     * @param toDoListIds the IDs of the lists
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public void recordListsDeleted(Long userId, Collection<Long> toDoListIds) {
+        if (toDoListIds.isEmpty()) {
+            return;
+        }
+        long seq = nextSeq(userId);
+        changeRepository.recordItemsOfLists(toDoListIds, userId, seq, true);
+        changeRepository.recordLists(toDoListIds, userId, seq, true);
+    }
+
+    /**
+     * Get the lists and items of a user changed after a sync token.
+     * Without a usable token the full state is returned instead.
+     *
+     * @param userId the ID of the user
+     * @param since  the token of the client's last sync, or null for a full sync
+     * @return the changes and the token for the next sync
+     */
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public ChangeSetDto getChanges(Long userId, Long since) {
+        // Read before the data, so anything committed later is picked up by the next sync
+        long token = userRepository.findChangeSeqById(userId).orElse(0L);
+
+        // A token from the future belongs to another database and cannot be trusted. Token 0 is
+        // valid: a full sync of a user without changes hands it out, and it means "as of then"
+        if (since == null || since < 0 || since > token) {
+            return getFullState(userId, token);
+        }
+
+        List<Long> listIds = new ArrayList<>();
+        Map<Long, Long> listIdByItemId = new HashMap<>();
+        ChangeSetDto changeSet = new ChangeSetDto();
+        for (ChangeEntity change : changeRepository.findByUserIdAndSeqGreaterThanOrderBySeq(userId, since)) {
+            token = Math.max(token, change.getSeq());
+            boolean isList = change.getEntityType() == ChangeEntity.Type.LIST;
+            if (change.getDeleted()) {
+                (isList ? changeSet.getDeletedListIds() : changeSet.getDeletedItemIds()).add(change.getEntityId());
+            } else if (isList) {
+                listIds.add(change.getEntityId());
+            } else {
+                listIdByItemId.put(change.getEntityId(), change.getListId());
+            }
+        }
+
+        // Rows deleted after their change was read are skipped; their tombstone comes with the next sync
+        if (!listIds.isEmpty()) {
+            changeSet.setLists(toDoListMapper.toDtoList(toDoListRepository.findAllById(listIds)));
+        }
+        if (!listIdByItemId.isEmpty()) {
+            for (ToDoListItemEntity item : toDoListItemRepository.findAllById(listIdByItemId.keySet())) {
+                changeSet.getItems().computeIfAbsent(listIdByItemId.get(item.getId()), id -> new ArrayList<>())
+                        .add(toDoListItemMapper.toDto(item));
+            }
+        }
+        changeSet.setSyncToken(token);
+        return changeSet;
+    }
+
+    /**
+     * Build a change set holding everything the user has, loaded with one join-fetch query.
+     */
+    private ChangeSetDto getFullState(Long userId, long token) {
+        ChangeSetDto changeSet = new ChangeSetDto();
+        List<ToDoListEntity> lists = toDoListRepository.findBoardByUserEntity_Id(userId);
+        changeSet.setLists(toDoListMapper.toDtoList(lists));
+        for (ToDoListEntity list : lists) {
+            changeSet.getItems().put(list.getId(), toDoListItemMapper.toDtoList(list.getToDoListItems()));
+        }
+        changeSet.setSyncToken(token);
+        changeSet.setFull(true);
+        return changeSet;
+    }
+
+    /**
+     * Take the next change sequence number of a user. The user row stays locked
+     * until commit, so writes of the same user commit in sequence order.
+     * A transaction takes one number per user; later calls return the same number.
+     * Subscribers are told about the change once it is committed.
+     */
+    private long nextSeq(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userRepository.incrementChangeSeqById(userId);
+            long seq = userRepository.findChangeSeqById(userId).orElseThrow();
+            changeEventHub.publish(userId, seq);
+            return seq;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<Long, Long> taken = (Map<Long, Long>) TransactionSynchronizationManager.getResource(TAKEN_SEQS);
+        if (taken == null) {
+            Map<Long, Long> seqs = new HashMap<>();
+            taken = seqs;
+            TransactionSynchronizationManager.bindResource(TAKEN_SEQS, seqs);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seqs.forEach(changeEventHub::publish);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TAKEN_SEQS);
+                }
+            });
+        }
+        Long seq = taken.get(userId);
+        if (seq == null) {
+            userRepository.incrementChangeSeqById(userId);
+            seq = userRepository.findChangeSeqById(userId).orElseThrow();
+            taken.put(userId, seq);
+        }
+        return seq;
+    }
+}
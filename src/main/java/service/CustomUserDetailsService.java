@@ -1,33 +1,32 @@
 package service;
 
-import model.UserEntity;
+import cache.UserCache;
+import dto.UserDto;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import repository.UserRepository;
 
 import java.util.Collections;
-import java.util.Optional;
 
 /**
  * Custom implementation of Spring Security's UserDetailsService.
- * Loads user details from the database for authentication purposes.
+ * Loads user details through the user cache for authentication purposes.
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
-    // Repository to access UserEntity data
-    private final UserRepository userRepository;
+    // Cache of resolved users in front of UserRepository
+    private final UserCache userCache;
 
     /**
-     * Constructor to inject UserRepository.
+     * Constructor to inject UserCache.
      *
-     * @param userRepository the UserRepository to use
+     * @param userCache the UserCache to use
      */
-    public CustomUserDetailsService(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public CustomUserDetailsService(UserCache userCache) {
+        this.userCache = userCache;
     }
 
     /**
@@ -41,15 +40,13 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // Find the user by username or throw an exception if not found
-        Optional<UserEntity> user = Optional.ofNullable(
-                userRepository.findByUserName(username)
-                        .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username))
-        );
+        UserDto user = userCache.findByUserName(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
         // Return a Spring Security User object with username, password, and empty authorities
         return new User(
-                user.get().getUserName(),
-                user.get().getPassword(),
+                user.getUserName(),
+                user.getPassword(),
                 Collections.emptyList() // No roles/authorities
         );
     }
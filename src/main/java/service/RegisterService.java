@@ -4,12 +4,11 @@ import dto.RequestDto;
 import dto.UserDto;
 import exception.ExistException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import repository.UserRepository;
 
 /**
  * Service class responsible for registering new users.
- * Checks for existing usernames and delegates user creation to UserService.
+ * Delegates user creation to UserService, which relies on the unique username constraint.
+ * Registration opens no transaction itself, so the password is hashed before any connection is taken.
  */
 @Service
 public class RegisterService {
@@ -17,18 +16,13 @@ public class RegisterService {
     // Service for managing users
     private final UserService userService;
 
-    // Repository to access UserEntity data
-    private final UserRepository userRepository;
-
     /**
      * Constructor to inject dependencies.
      *
-     * @param userService    the UserService to use
-     * @param userRepository the UserRepository to use
+     * @param userService the UserService to use
      */
-    public RegisterService(UserService userService, UserRepository userRepository) {
+    public RegisterService(UserService userService) {
         this.userService = userService;
-        this.userRepository = userRepository;
     }
 
     /**
@@ -38,14 +32,8 @@ public class RegisterService {
      * @param requestDto the DTO containing user registration data
      * @throws ExistException if the username is already taken
      */
-    @Transactional // Ensures that the registration process is transactional
     public void register(RequestDto requestDto) throws ExistException {
 
-        // Check if the username already exists in the database
-        if (userRepository.existsByUserName(requestDto.getUserName())) {
-            throw new ExistException("username is already exist");
-        }
-
         // Create a new UserDto and set its fields
         UserDto userDto = new UserDto();
         userDto.setUserName(requestDto.getUserName());
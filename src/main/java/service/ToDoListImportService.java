@@ -0,0 +1,139 @@
+package service;
+
+import dto.ImportProgressDto;
+import dto.ToDoListItemDto;
+import exception.NotFoundException;
+import exception.ServiceBusyException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import repository.ToDoListRepository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Service class importing large numbers of items into a ToDoList.
+ * Records are pulled from the source one at a time and written in chunks,
+ * each through ToDoListItemService.createItems in its own transaction with
+ * JDBC batch inserts. Only one chunk is held in memory, and no connection is
+ * held while the next chunk is still being read from the client.
+ */
+@Service
+public class ToDoListImportService {
+
+    private static final int MAX_TITLE_LENGTH = 255; // Length of the todo_list_item.title column
+    private static final int MAX_REPORTED_REJECTIONS = 100; // Rejections listed in the progress, the rest are counted
+
+    private final ToDoListItemService toDoListItemService; // Writes each chunk in its own transaction
+    private final ToDoListRepository toDoListRepository; // Repository for ToDoListEntity
+    private final int chunkSize; // Items committed per transaction
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param toDoListItemService service writing the chunks
+     * @param toDoListRepository  repository for ToDoListEntity
+     * @param chunkSize           number of items committed per transaction
+     */
+    public ToDoListImportService(ToDoListItemService toDoListItemService, ToDoListRepository toDoListRepository,
+                                 @Value("${todolist.import.chunk-size:1000}") int chunkSize) {
+        this.toDoListItemService = toDoListItemService;
+        this.toDoListRepository = toDoListRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Check that a ToDoList exists, before the import starts streaming its response.
+     *
+     * @param toDoListId the ID of the list
+     * @throws NotFoundException if the list does not exist
+     */
+    public void checkToDoList(Long toDoListId) throws NotFoundException {
+        if (!toDoListRepository.existsById(toDoListId)) {
+            throw new NotFoundException("Todolist not found");
+        }
+    }
+
+    /**
+     * Import items into a ToDoList. Invalid records are skipped and reported.
+     * A source that fails to parse ends the import; the valid records read before
+     * the failure are committed.
+     *
+     * @param toDoListId the ID of the list receiving the items
+     * @param records    the parsed records, read lazily
+     * @param progress   receives the progress after every committed chunk and once at the end
+     */
+    public void importItems(Long toDoListId, Iterator<ToDoListItemDto> records, Consumer<ImportProgressDto> progress) {
+        ImportProgressDto status = new ImportProgressDto();
+        List<ToDoListItemDto> chunk = new ArrayList<>(chunkSize);
+        long recordNumber = 0;
+        try {
+            while (true) {
+                ToDoListItemDto record;
+                try {
+                    if (!records.hasNext()) {
+                        break;
+                    }
+                    record = records.next();
+                } catch (RuntimeException e) {
+                    status.setError("record " + (recordNumber + 1) + ": " + e.getMessage());
+                    break;
+                }
+                recordNumber++;
+
+                String rejection = validate(record);
+                if (rejection != null) {
+                    status.setRejected(status.getRejected() + 1);
+                    if (status.getRejections().size() < MAX_REPORTED_REJECTIONS) {
+                        status.getRejections().add("record " + recordNumber + ": " + rejection);
+                    }
+                    continue;
+                }
+                // Ids and versions of the source are not kept, every record becomes a new item
+                chunk.add(new ToDoListItemDto(null, record.getTitle().trim(), Boolean.TRUE.equals(record.getIsDone()), null));
+
+                if (chunk.size() == chunkSize) {
+                    write(toDoListId, chunk, status, progress);
+                }
+            }
+            write(toDoListId, chunk, status, progress);
+        } catch (NotFoundException e) {
+            status.setError("list was deleted during the import");
+        } catch (ServiceBusyException e) {
+            // Chunks are shed first under load; the committed ones stay and the client retries the rest
+            status.setError("service is overloaded, records after the last committed chunk were not imported");
+        }
+        status.setDone(true);
+        progress.accept(status);
+    }
+
+    /**
+     * Commit a chunk and report the progress.
+     */
+    private void write(Long toDoListId, List<ToDoListItemDto> chunk, ImportProgressDto status,
+                       Consumer<ImportProgressDto> progress) throws NotFoundException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        status.setImported(status.getImported() + toDoListItemService.createItems(chunk, toDoListId));
+        chunk.clear();
+        progress.accept(status);
+    }
+
+    /**
+     * Check a record against the constraints of an item.
+     *
+     * @return the reason the record is rejected, or null if it is valid
+     */
+    private static String validate(ToDoListItemDto record) {
+        if (record == null || record.getTitle() == null || record.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (record.getTitle().trim().length() > MAX_TITLE_LENGTH) {
+            return "title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        return null;
+    }
+}
@@ -1,11 +1,18 @@
 package service;
 
+import aspect.LoadShedding;
+import aspect.ReadFromPrimary;
+import cache.ToDoListCache;
+import cache.VersionStamps;
+import dto.CursorPageDto;
 import dto.ToDoListItemDto;
+import exception.ConflictException;
 import exception.NotFoundException;
 import mapper.ToDoListItemMapper;
 import model.ToDoListEntity;
 import model.ToDoListItemEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
@@ -13,8 +20,9 @@ import org.springframework.transaction.annotation.Transactional;
 import repository.ToDoListRepository;
 import repository.TodoListItemRepository;
 
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service class for managing ToDoListItem entities.
@@ -32,18 +40,58 @@ public class ToDoListItemService {
     // Repository to access ToDoListEntity data
     private final ToDoListRepository toDoListRepository;
 
+    // Read-through cache of lists and items
+    private final ToDoListCache toDoListCache;
+
+    // ETag stamps of users and lists
+    private final VersionStamps versionStamps;
+
+    // Change log behind delta sync
+    private final ChangeLogService changeLogService;
+
+    // Resolves user ids
+    private final UserService userService;
+
+    // Upper bound for a single cursor page
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // Rows read per query while streaming
+    private static final int STREAM_BATCH_SIZE = 500;
+
     /**
      * Constructor for dependency injection.
      *
      * @param todoListItemRepository repository for ToDoListItemEntity
      * @param toDoListItemMapper     mapper for ToDoListItem
      * @param toDoListRepository     repository for ToDoListEntity
+     * @param toDoListCache          cache of lists and items
+     * @param versionStamps          ETag stamps of users and lists
+     * @param changeLogService       change log behind delta sync
+     * @param userService            resolves user ids
      */
     @Autowired
-    public ToDoListItemService(TodoListItemRepository todoListItemRepository, ToDoListItemMapper toDoListItemMapper, ToDoListRepository toDoListRepository) {
+    public ToDoListItemService(TodoListItemRepository todoListItemRepository, ToDoListItemMapper toDoListItemMapper,
+                               ToDoListRepository toDoListRepository, ToDoListCache toDoListCache,
+                               VersionStamps versionStamps, ChangeLogService changeLogService,
+                               UserService userService) {
         this.todoListItemRepository = todoListItemRepository;
         this.toDoListItemMapper = toDoListItemMapper;
         this.toDoListRepository = toDoListRepository;
+        this.toDoListCache = toDoListCache;
+        this.versionStamps = versionStamps;
+        this.changeLogService = changeLogService;
+        this.userService = userService;
+    }
+
+    /**
+     * Get the ETag of the items of a ToDoList.
+     * No database query is made, so unchanged items can be answered with 304 cheaply.
+     *
+     * @param toDoListId the ID of the ToDoList
+     * @return the strong ETag, or null if it is not available
+     */
+    public String getToDoListItemETag(Long toDoListId) {
+        return versionStamps.listETag(toDoListId);
     }
 
     /**
@@ -52,9 +100,52 @@ public class ToDoListItemService {
      * @param toDoListId the ID of the ToDoList
      * @return a list of ToDoListItemDto
      */
+    @ReadFromPrimary
     @Transactional(readOnly = true,propagation = Propagation.REQUIRED,isolation = Isolation.READ_COMMITTED) // Read-only transaction
     public List<ToDoListItemDto> getAllToDoListItem(Long toDoListId) {
-        return toDoListItemMapper.toDtoList(todoListItemRepository.findByToDoListEntity_Id(toDoListId));
+        return toDoListCache.getItems(toDoListId,
+                () -> toDoListItemMapper.toDtoList(todoListItemRepository.findByToDoListEntity_Id(toDoListId)));
+    }
+
+    /**
+     * Get one page of items for a specific ToDoList using keyset pagination on id.
+     *
+     * @param toDoListId the ID of the ToDoList
+     * @param afterId    cursor returned by the previous page, or null for the first page
+     * @param size       the requested page size, capped at MAX_PAGE_SIZE
+     * @return a CursorPageDto of ToDoListItemDto
+     */
+    @ReadFromPrimary
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public CursorPageDto<ToDoListItemDto> getToDoListItemPage(Long toDoListId, Long afterId, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<ToDoListItemEntity> items = todoListItemRepository.findByToDoListEntity_IdAndIdGreaterThanOrderByIdAsc(
+                toDoListId, afterId == null ? 0L : afterId, Limit.of(limit));
+
+        // A full page means there may be more rows after the last id
+        Long nextCursor = items.size() == limit ? items.get(items.size() - 1).getId() : null;
+        return new CursorPageDto<>(toDoListItemMapper.toDtoList(items), nextCursor);
+    }
+
+    /**
+     * Stream all items of a specific ToDoList to a consumer, one at a time.
+     * Items are read in keyset-paged batches, so at most one batch is held in memory.
+     * Each batch is read in its own short transaction: no connection is held while the
+     * client reads the previous batch, so slow clients cannot drain the pool.
+     *
+     * @param toDoListId the ID of the ToDoList
+     * @param consumer   callback receiving each item in id order
+     */
+    public void streamAllToDoListItem(Long toDoListId, Consumer<ToDoListItemDto> consumer) {
+        Long afterId = 0L;
+        List<ToDoListItemDto> batch;
+        do {
+            batch = todoListItemRepository.findDtosByToDoListEntity_IdAfter(toDoListId, afterId, Limit.of(STREAM_BATCH_SIZE));
+            batch.forEach(consumer);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == STREAM_BATCH_SIZE);
     }
 
     /**
@@ -66,20 +157,121 @@ public class ToDoListItemService {
      */
     @Transactional(propagation = Propagation.REQUIRED,isolation = Isolation.READ_COMMITTED)
     public void createItem(ToDoListItemDto toDoListItemDto, Long todoListId) throws NotFoundException {
-        // Find the parent ToDoListEntity or throw exception if not found
-        Optional<ToDoListEntity> toDoListEntity = Optional.ofNullable(
-                toDoListRepository.findById(todoListId)
-                        .orElseThrow(() -> new NotFoundException("Todolist not found"))
-        );
+        // Read the owner of the parent ToDoListEntity, or throw exception if not found
+        Long userId = toDoListRepository.findUserIdById(todoListId)
+                .orElseThrow(() -> new NotFoundException("Todolist not found"));
+        changeLogService.lockUser(userId);
 
         // Map DTO to entity
         ToDoListItemEntity itemEntity = toDoListItemMapper.toEntity(toDoListItemDto);
 
-        // Set relationship to parent ToDoListEntity
-        itemEntity.setToDoListEntity(toDoListEntity.get());
+        // Set relationship to parent ToDoListEntity through a reference, without loading it
+        itemEntity.setToDoListEntity(toDoListRepository.getReferenceById(todoListId));
 
         // Save the item entity
         todoListItemRepository.save(itemEntity);
+        changeLogService.recordItems(userId, List.of(itemEntity.getId()), false);
+        toDoListCache.evictItems(todoListId);
+        versionStamps.touchUser(userId);
+        versionStamps.touchList(todoListId);
+    }
+
+    /**
+     * Create many items for a specific ToDoList in one transaction.
+     * Inserts are sent as JDBC batches.
+     *
+     * @param toDoListItemDtos DTOs containing item data
+     * @param todoListId       ID of the parent ToDoList
+     * @return the number of created items
+     * @throws NotFoundException if the parent ToDoList does not exist
+     */
+    @LoadShedding(LoadShedding.Priority.LOW)
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public int createItems(List<ToDoListItemDto> toDoListItemDtos, Long todoListId) throws NotFoundException {
+        Long userId = toDoListRepository.findUserIdById(todoListId)
+                .orElseThrow(() -> new NotFoundException("Todolist not found"));
+        changeLogService.lockUser(userId);
+
+        // Only the foreign key is needed, so a reference avoids loading the list
+        ToDoListEntity toDoListEntity = toDoListRepository.getReferenceById(todoListId);
+        List<ToDoListItemEntity> itemEntities = toDoListItemMapper.toEntityList(toDoListItemDtos);
+        for (ToDoListItemEntity itemEntity : itemEntities) {
+            itemEntity.setId(null); // Always insert, never merge into an existing row
+            itemEntity.setToDoListEntity(toDoListEntity);
+        }
+
+        todoListItemRepository.saveAll(itemEntities);
+        changeLogService.recordItems(userId, itemEntities.stream().map(ToDoListItemEntity::getId).toList(), false);
+        toDoListCache.evictItems(todoListId);
+        versionStamps.touchUser(userId);
+        versionStamps.touchList(todoListId);
+        return itemEntities.size();
+    }
+
+    /**
+     * Set the "isDone" status of many items of a user with one UPDATE statement.
+     *
+     * @param userName the username of the user owning the items
+     * @param itemIds  the IDs of the items
+     * @param isDone   the new status
+     * @return the number of updated items
+     * @throws NotFoundException if an item does not exist or belongs to another user
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public int bulkUpdateIsDone(String userName, List<Long> itemIds, boolean isDone) throws NotFoundException {
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        Long userId = checkOwner(userName, itemIds);
+        changeLogService.lockUser(userId);
+        touchLists(userId, todoListItemRepository.findToDoListIdsByIdIn(itemIds));
+        int updated = todoListItemRepository.updateIsDoneByIdInAndUserId(itemIds, userId, isDone);
+        changeLogService.recordItems(userId, itemIds, false);
+        return updated;
+    }
+
+    /**
+     * Delete many items of a user with one DELETE statement.
+     *
+     * @param userName the username of the user owning the items
+     * @param itemIds  the IDs of the items
+     * @return the number of deleted items
+     * @throws NotFoundException if an item does not exist or belongs to another user
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public int deleteItems(String userName, List<Long> itemIds) throws NotFoundException {
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        Long userId = checkOwner(userName, itemIds);
+        changeLogService.lockUser(userId);
+        touchLists(userId, todoListItemRepository.findToDoListIdsByIdIn(itemIds));
+        // Tombstones are written while the rows still exist
+        changeLogService.recordItems(userId, itemIds, true);
+        return todoListItemRepository.deleteByIdInAndUserId(itemIds, userId);
+    }
+
+    /**
+     * Delete all completed items of a ToDoList with one DELETE statement.
+     * The owner and then the completed rows are locked, and the rows recorded as deleted first.
+     *
+     * @param toDoListId the ID of the ToDoList
+     * @return the number of deleted items
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public int deleteCompletedItems(Long toDoListId) {
+        Long userId = toDoListRepository.findUserIdById(toDoListId).orElse(null);
+        if (userId == null) {
+            return 0;
+        }
+        changeLogService.lockUser(userId);
+        List<Long> itemIds = todoListItemRepository.findCompletedIdsByToDoListEntity_Id(toDoListId);
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        touchLists(userId, List.of(toDoListId));
+        changeLogService.recordItems(userId, itemIds, true);
+        return todoListItemRepository.deleteByIdIn(itemIds);
     }
 
     /**
@@ -89,26 +281,77 @@ public class ToDoListItemService {
      */
     @Transactional(propagation = Propagation.REQUIRED,isolation = Isolation.READ_COMMITTED)
     public void deleteItem(Long itemId) {
-        todoListItemRepository.deleteById(itemId);
+        // Missing items are ignored, as before; the parent id is needed for eviction
+        todoListItemRepository.findById(itemId).ifPresent(item -> {
+            Long toDoListId = item.getToDoListEntity().getId();
+            toDoListRepository.findUserIdById(toDoListId).ifPresent(userId -> {
+                changeLogService.lockUser(userId);
+                touchLists(userId, List.of(toDoListId));
+                changeLogService.recordItems(userId, List.of(itemId), true);
+                todoListItemRepository.delete(item);
+            });
+        });
     }
 
     /**
-     * Toggle the "isDone" status of a ToDoListItem.
+     * Toggle the "isDone" status of a ToDoListItem with one atomic UPDATE,
+     * so concurrent toggles are never lost.
      *
-     * @param itemId the ID of the item
+     * @param itemId  the ID of the item
+     * @param version the version the client last saw, or null to toggle unconditionally
+     * @return the item with its new status and version
      * @throws NotFoundException if the item does not exist
+     * @throws ConflictException if the item no longer has the expected version
      */
+    @LoadShedding(LoadShedding.Priority.HIGH)
     @Transactional(propagation = Propagation.REQUIRED,isolation = Isolation.READ_COMMITTED)
-    public void updateIsDone(Long itemId) throws NotFoundException {
-        // Find the item or throw exception
+    public ToDoListItemDto updateIsDone(Long itemId, Long version) throws NotFoundException, ConflictException {
+        Long userId = todoListItemRepository.findUserIdById(itemId)
+                .orElseThrow(() -> new NotFoundException("item not found"));
+        changeLogService.lockUser(userId);
+
+        if (todoListItemRepository.toggleIsDone(itemId, version) == 0) {
+            // Nothing updated: either the item is gone or someone else changed it first
+            if (!todoListItemRepository.existsById(itemId)) {
+                throw new NotFoundException("item not found");
+            }
+            throw new ConflictException("item was modified by another request");
+        }
+
+        // Read back the new state; the row stays locked by the update until commit
         ToDoListItemEntity toDoListItemEntity = todoListItemRepository.findById(itemId)
                 .orElseThrow(() -> new NotFoundException("item not found"));
+        touchLists(userId, List.of(toDoListItemEntity.getToDoListEntity().getId()));
+        changeLogService.recordItems(userId, List.of(itemId), false);
 
-        // Toggle the isDone status
-        Boolean isDone = toDoListItemEntity.getIsDone();
-        toDoListItemEntity.setIsDone(!isDone);
+        return toDoListItemMapper.toDto(toDoListItemEntity);
+    }
 
-        // Save the updated entity
-        todoListItemRepository.save(toDoListItemEntity);
+    /**
+     * Check that all items are in lists of a user.
+     * Items of other users are reported like missing ones, so their existence is not revealed.
+     *
+     * @return the ID of the user
+     */
+    private Long checkOwner(String userName, List<Long> itemIds) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+        if (todoListItemRepository.findIdsByIdInAndUserId(itemIds, userId).size() != new HashSet<>(itemIds).size()) {
+            throw new NotFoundException("item not found");
+        }
+        return userId;
+    }
+
+    /**
+     * Evict the cached items of the given lists of a user and change their ETag stamps,
+     * together with the stamp of the user, once the transaction commits.
+     *
+     * @param userId      the ID of the owner
+     * @param toDoListIds the IDs of the changed lists
+     */
+    private void touchLists(Long userId, List<Long> toDoListIds) {
+        toDoListIds.forEach(toDoListCache::evictItems);
+        versionStamps.touchUser(userId);
+        toDoListIds.forEach(versionStamps::touchList);
     }
 }
@@ -1,25 +1,34 @@
 package service;
 
+import aspect.ReadFromPrimary;
+import cache.ToDoListCache;
+import cache.VersionStamps;
+import dto.ChangeSetDto;
+import dto.CursorPageDto;
+import dto.ToDoListBoardDto;
 import dto.ToDoListDto;
 import dto.ToDoListItemDto;
+import dto.ToDoListItemRowDto;
+import dto.ToDoListSummaryDto;
+import event.ChangeEventHub;
 import exception.ExistException;
 import exception.NotFoundException;
-import mapper.ToDoListItemMapper;
 import mapper.ToDoListMapper;
 import model.ToDoListEntity;
 import model.ToDoListItemEntity;
-import model.UserEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import repository.ToDoListRepository;
 import repository.TodoListItemRepository;
 import repository.UserRepository;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service class for managing ToDoList entities.
@@ -30,21 +39,48 @@ public class ToDoListService {
 
     private final ToDoListRepository toDoListRepository; // Repository for ToDoListEntity
     private final ToDoListMapper toDoListMapper; // Mapper for ToDoList DTOs
-    private final ToDoListItemMapper toDoListItemMapper; // Mapper for ToDoListItem DTOs
     private final TodoListItemRepository toDoListItemRepository; // Repository for ToDoListItemEntity
     private final UserRepository userRepository; // Repository for UserEntity
+    private final UserService userService; // Resolves user ids
+    private final ToDoListItemService toDoListItemService; // Item writes shared with the item endpoints
+    private final ToDoListCache toDoListCache; // Read-through cache of lists and items
+    private final VersionStamps versionStamps; // ETag stamps of users and lists
+    private final ChangeLogService changeLogService; // Change log behind delta sync
+    private final ChangeEventHub changeEventHub; // Push channel of committed changes
+
+    private static final int MAX_PAGE_SIZE = 500; // Upper bound for a single cursor page
+    private static final int EXPORT_BATCH_SIZE = 500; // Rows read per query while exporting
 
     /**
      * Constructor for dependency injection.
      */
     public ToDoListService(ToDoListRepository toDoListRepository, ToDoListMapper toDoListMapper,
-                           ToDoListItemMapper toDoListItemMapper, TodoListItemRepository toDoListItemRepository,
-                           UserRepository userRepository) {
+                           TodoListItemRepository toDoListItemRepository,
+                           UserRepository userRepository, UserService userService,
+                           ToDoListItemService toDoListItemService,
+                           ToDoListCache toDoListCache, VersionStamps versionStamps,
+                           ChangeLogService changeLogService, ChangeEventHub changeEventHub) {
         this.toDoListRepository = toDoListRepository;
         this.toDoListMapper = toDoListMapper;
-        this.toDoListItemMapper = toDoListItemMapper;
         this.toDoListItemRepository = toDoListItemRepository;
         this.userRepository = userRepository;
+        this.userService = userService;
+        this.toDoListItemService = toDoListItemService;
+        this.toDoListCache = toDoListCache;
+        this.versionStamps = versionStamps;
+        this.changeLogService = changeLogService;
+        this.changeEventHub = changeEventHub;
+    }
+
+    /**
+     * Get the ETag of the lists and items of a user.
+     * No database query is made, so unchanged data can be answered with 304 cheaply.
+     *
+     * @param userName the username of the user
+     * @return the strong ETag, or null if it is not available
+     */
+    public String getToDoListETag(String userName) {
+        return userService.findUserId(userName).map(versionStamps::userETag).orElse(null);
     }
 
     /**
@@ -54,13 +90,133 @@ public class ToDoListService {
      * @return a list of ToDoListDto
      * @throws NotFoundException if the user does not exist
      */
+    @ReadFromPrimary
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
     public List<ToDoListDto> getAllToDoListByUsername(String userName) throws NotFoundException {
-        Optional<UserEntity> user = Optional.ofNullable(
-                userRepository.findByUserName(userName)
-                        .orElseThrow(() -> new NotFoundException("User not found with username: " + userName))
-        );
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+
+        return toDoListCache.getLists(userId,
+                () -> toDoListMapper.toDtoList(toDoListRepository.findByUserEntity_Id(userId)));
+    }
+
+    /**
+     * Get one page of ToDo lists for a specific user using keyset pagination on id.
+     *
+     * @param userName the username of the user
+     * @param afterId  cursor returned by the previous page, or null for the first page
+     * @param size     the requested page size, capped at MAX_PAGE_SIZE
+     * @return a CursorPageDto of ToDoListDto
+     * @throws NotFoundException if the user does not exist
+     */
+    @ReadFromPrimary
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public CursorPageDto<ToDoListDto> getToDoListPageByUsername(String userName, Long afterId, int size) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<ToDoListEntity> lists = toDoListRepository.findByUserEntity_IdAndIdGreaterThanOrderByIdAsc(
+                userId, afterId == null ? 0L : afterId, Limit.of(limit));
+
+        // A full page means there may be more rows after the last id
+        Long nextCursor = lists.size() == limit ? lists.get(lists.size() - 1).getId() : null;
+        return new CursorPageDto<>(toDoListMapper.toDtoList(lists), nextCursor);
+    }
+
+    /**
+     * Get all ToDo lists of a user together with their items.
+     * Lists and items are loaded with one join-fetch query.
+     *
+     * @param userName the username of the user
+     * @return a list of ToDoListBoardDto
+     * @throws NotFoundException if the user does not exist
+     */
+    @ReadFromPrimary
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public List<ToDoListBoardDto> getBoardByUsername(String userName) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+
+        return toDoListMapper.toBoardDtoList(toDoListRepository.findBoardByUserEntity_Id(userId));
+    }
+
+    /**
+     * Get all ToDo lists of a user with the total, done and open counts of their items.
+     * The counts are aggregated by the database, so no item is loaded.
+     *
+     * @param userName the username of the user
+     * @return a list of ToDoListSummaryDto ordered by list id
+     * @throws NotFoundException if the user does not exist
+     */
+    @ReadFromPrimary
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public List<ToDoListSummaryDto> getSummaryByUsername(String userName) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+
+        return toDoListRepository.findSummariesByUserEntity_Id(userId);
+    }
+
+    /**
+     * Stream every item of a user together with its list to a consumer, one row at a time.
+     * Rows are read in keyset-paged batches on list and item id, so memory use does not grow
+     * with the account and no driver-side cursor is needed. Each batch is read in its own
+     * short transaction, so no connection is held while the client reads the previous batch.
+     *
+     * @param userName the username of the user
+     * @param consumer callback receiving each row, ordered by list and item id
+     * @throws NotFoundException if the user does not exist
+     */
+    public void exportByUsername(String userName, Consumer<ToDoListItemRowDto> consumer) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+
+        Long afterListId = 0L;
+        Long afterId = 0L;
+        List<ToDoListItemRowDto> batch;
+        do {
+            batch = toDoListItemRepository.findRowsByUserIdAfter(userId, afterListId, afterId, Limit.of(EXPORT_BATCH_SIZE));
+            batch.forEach(consumer);
+            if (!batch.isEmpty()) {
+                ToDoListItemRowDto last = batch.get(batch.size() - 1);
+                afterListId = last.getListId();
+                afterId = last.getId();
+            }
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+    }
+
+    /**
+     * Get the lists and items of a user created, updated or deleted after a sync token.
+     * Only the changed rows are read, so the cost grows with the size of the change.
+     *
+     * @param userName the username of the user
+     * @param since    the token returned by the previous sync, or null for a full sync
+     * @return a ChangeSetDto with the changes and the next sync token
+     * @throws NotFoundException if the user does not exist
+     */
+    public ChangeSetDto getChangesByUsername(String userName, Long since) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+
+        return changeLogService.getChanges(userId, since);
+    }
+
+    /**
+     * Open a Server-Sent Events channel announcing every committed change of a user.
+     * Each event carries the user's change sequence number, to be used as the
+     * "since" token of a delta sync.
+     *
+     * @param userName    the username of the user
+     * @param lastEventId the Last-Event-ID of a reconnecting client, or null
+     * @return the SseEmitter of the channel
+     * @throws NotFoundException if the user does not exist
+     */
+    public SseEmitter subscribeChanges(String userName, Long lastEventId) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
 
-        return toDoListMapper.toDtoList(toDoListRepository.findByUserEntity_Id(user.get().getId()));
+        return changeEventHub.subscribe(userId, lastEventId, changeLogService.getSyncToken(userId));
     }
 
     /**
@@ -72,37 +228,77 @@ public class ToDoListService {
      */
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
     public void createToDoList(ToDoListDto toDoListDto, String username) throws ExistException {
-        Optional<UserEntity> user = Optional.ofNullable(
-                userRepository.findByUserName(username)
-                        .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username))
-        );
+        Long userId = userService.findUserId(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        // Serializes list creation per user, so the title check cannot race another insert
+        changeLogService.lockUser(userId);
 
-        if (toDoListRepository.existsByTitleAndUserEntity_Id(toDoListDto.getTitle(), user.get().getId())) {
+        if (toDoListRepository.existsByTitleAndUserEntity_Id(toDoListDto.getTitle(), userId)) {
             throw new ExistException("title is exist for this user");
         }
 
         ToDoListEntity toDoListEntity = toDoListMapper.toEntity(toDoListDto);
-        toDoListEntity.setUserEntity(user.get());
+        // Only the foreign key is needed, so a reference avoids loading the user row
+        toDoListEntity.setUserEntity(userRepository.getReferenceById(userId));
 
         toDoListRepository.save(toDoListEntity);
+        changeLogService.recordLists(userId, List.of(toDoListEntity.getId()), false);
+        toDoListCache.evictLists(userId);
+        versionStamps.touchUser(userId);
     }
 
     /**
      * Delete a ToDoList by its ID.
+     * Items and the list are removed with two set-based statements, without loading any entity.
      *
      * @param toDoListId the ID of the list
      * @throws NotFoundException if the list does not exist
      */
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
     public void deleteToDoList(Long toDoListId) throws NotFoundException {
-        toDoListRepository.findById(toDoListId)
+        Long userId = toDoListRepository.findUserIdById(toDoListId)
                 .orElseThrow(() -> new NotFoundException("List not found"));
+        changeLogService.lockUser(userId);
+
+        changeLogService.recordListsDeleted(userId, List.of(toDoListId));
+        toDoListItemRepository.deleteByToDoListEntity_IdInBulk(toDoListId);
+        toDoListRepository.deleteByIdInBulk(toDoListId);
+        toDoListCache.evictLists(userId);
+        toDoListCache.evictItems(toDoListId);
+        versionStamps.touchUser(userId);
+        versionStamps.touchList(toDoListId);
+    }
+
+    /**
+     * Delete all ToDoLists of a user together with their items.
+     * Items and lists are removed with two set-based statements, without loading any entity.
+     *
+     * @param userName the username of the user
+     * @return the number of deleted lists
+     * @throws NotFoundException if the user does not exist
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public int deleteAllToDoListByUsername(String userName) throws NotFoundException {
+        Long userId = userService.findUserId(userName)
+                .orElseThrow(() -> new NotFoundException("User not found with username: " + userName));
+        changeLogService.lockUser(userId);
+
+        // Only ids are read, to know which cached item views to evict
+        List<Long> toDoListIds = toDoListRepository.findIdsByUserEntity_Id(userId);
+        toDoListIds.forEach(toDoListCache::evictItems);
 
-        toDoListRepository.deleteById(toDoListId);
+        changeLogService.recordListsDeleted(userId, toDoListIds);
+        toDoListItemRepository.deleteByUserIdInBulk(userId);
+        int deleted = toDoListRepository.deleteByUserEntity_IdInBulk(userId);
+        toDoListCache.evictLists(userId);
+        toDoListIds.forEach(versionStamps::touchList);
+        versionStamps.touchUser(userId);
+        return deleted;
     }
 
     /**
      * Add an item to a specific ToDoList.
+     * Delegates to ToDoListItemService.createItem, which references the parent by id only.
      *
      * @param listId  the ID of the list
      * @param itemDto the DTO containing item data
@@ -110,14 +306,7 @@ public class ToDoListService {
      */
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
     public void addItemToList(Long listId, ToDoListItemDto itemDto) throws NotFoundException {
-        ToDoListEntity toDoList = toDoListRepository.findById(listId)
-                .orElseThrow(() -> new NotFoundException("List not found"));
-
-        ToDoListItemEntity itemEntity = toDoListItemMapper.toEntity(itemDto);
-        itemEntity.setToDoListEntity(toDoList);
-        toDoList.getToDoListItems().add(itemEntity);
-
-        toDoListItemRepository.save(itemEntity);
+        toDoListItemService.createItem(itemDto, listId);
     }
 
     /**
@@ -128,9 +317,19 @@ public class ToDoListService {
      */
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
     public void removeItemFromList(Long itemId) throws NotFoundException {
-        if (!toDoListItemRepository.existsById(itemId)) {
-            throw new NotFoundException("Item not found");
-        }
-        toDoListItemRepository.deleteById(itemId);
+        ToDoListItemEntity item = toDoListItemRepository.findById(itemId)
+                .orElseThrow(() -> new NotFoundException("Item not found"));
+
+        Long listId = item.getToDoListEntity().getId();
+        Long userId = toDoListRepository.findUserIdById(listId)
+                .orElseThrow(() -> new NotFoundException("List not found"));
+        changeLogService.lockUser(userId);
+
+        // The tombstone is written while the row still exists
+        changeLogService.recordItems(userId, List.of(itemId), true);
+        toDoListItemRepository.delete(item);
+        toDoListCache.evictItems(listId);
+        versionStamps.touchUser(userId);
+        versionStamps.touchList(listId);
     }
 }
@@ -0,0 +1,57 @@
+package service;
+
+import aspect.LoadShedding;
+import cache.UserCache;
+import dto.UserDto;
+import exception.ExistException;
+import mapper.UserMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import repository.UserRepository;
+
+/**
+ * Service class inserting User entities whose password is already encoded.
+ * Kept apart from UserService so the insert runs in its own transaction, after hashing.
+ */
+@Service
+public class UserPersistService {
+
+    private final UserRepository userRepository; // Repository for UserEntity
+    private final UserMapper userMapper; // Mapper for User DTOs
+    private final UserCache userCache; // Cache of resolved users
+
+    /**
+     * Constructor for dependency injection.
+     */
+    @Autowired
+    public UserPersistService(UserRepository userRepository, UserMapper userMapper, UserCache userCache) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.userCache = userCache;
+    }
+
+    /**
+     * Insert a user with an encoded password.
+     * The unique constraint on the username rejects duplicates, so no separate existence check is needed.
+     *
+     * @param userDto the DTO containing user data and the encoded password
+     * @throws ExistException if the username already exists
+     */
+    @LoadShedding(LoadShedding.Priority.LOW)
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, rollbackFor = ExistException.class)
+    public void persist(UserDto userDto) throws ExistException {
+        // Save the user entity to the database, flushing so a duplicate fails here
+        try {
+            userRepository.saveAndFlush(userMapper.toEntity(userDto));
+        } catch (DataIntegrityViolationException e) {
+            throw new ExistException("username already exist.");
+        }
+
+        // Drop any stale cache entry for this username
+        userCache.evict(userDto.getUserName());
+    }
+}
@@ -1,55 +1,68 @@
 package service;
 
+import cache.UserCache;
+import dto.AuthenticatedUser;
 import dto.UserDto;
 import exception.ExistException;
-import mapper.UserMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
-import repository.UserRepository;
+
+import java.util.Optional;
 
 /**
  * Service class for managing User entities.
- * Handles user creation and password encoding.
+ * Handles user creation, password encoding and resolving user ids. Passwords are encoded before any
+ * transaction opens, so no connection is held while a hash waits for or runs on
+ * the hashing pool; UserPersistService then inserts the user in a short transaction.
  */
 @Service
 public class UserService {
 
-    private final UserRepository userRepository; // Repository for UserEntity
-    private final UserMapper userMapper; // Mapper for User DTOs
+    private final UserPersistService userPersistService; // Inserts users in their own transaction
     private final PasswordEncoder passwordEncoder; // For encoding user passwords
+    private final UserCache userCache; // Cache of resolved users
 
     /**
      * Constructor for dependency injection.
      */
     @Autowired
-    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder) {
-        this.userRepository = userRepository;
-        this.userMapper = userMapper;
+    public UserService(UserPersistService userPersistService, PasswordEncoder passwordEncoder, UserCache userCache) {
+        this.userPersistService = userPersistService;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
     }
 
     /**
      * Create a new user.
-     * Checks if the username already exists and encodes the password before saving.
+     * Encodes the password outside of any transaction, then inserts the user.
      *
      * @param userDto the DTO containing user data
      * @throws ExistException if the username already exists
      */
-    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
     public void createUser(UserDto userDto) throws ExistException {
-        // Check if the username already exists
-        if (userRepository.existsByUserName(userDto.getUserName())) {
-            throw new ExistException("username already exist.");
-        }
-
         // Encode the user's password
         userDto.setPassword(passwordEncoder.encode(userDto.getPassword()));
 
-        // Save the user entity to the database
-        userRepository.save(userMapper.toEntity(userDto));
+        userPersistService.persist(userDto);
+    }
+
+    /**
+     * Resolve the id of a user by username.
+     * Requests authenticated with a JWT already carry the id, so no lookup is needed;
+     * otherwise the user cache is used.
+     *
+     * @param userName the username of the user
+     * @return an Optional containing the user id, empty if the user does not exist
+     */
+    public Optional<Long> findUserId(String userName) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user
+                && user.getUserName().equals(userName)) {
+            return Optional.of(user.getId());
+        }
+        return userCache.findByUserName(userName).map(UserDto::getId);
     }
 }
@@ -0,0 +1,70 @@
+package web;
+
+import cache.UserCache;
+import config.JwtTokenService;
+import dto.AuthenticatedUser;
+import dto.RequestDto;
+import dto.TokenDto;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller issuing JWTs in the stateless authentication mode.
+ * Only registered when todolist.auth.mode=jwt.
+ */
+@RestController
+@RequestMapping("/auth")
+@ConditionalOnProperty(name = "todolist.auth.mode", havingValue = "jwt")
+public class AuthController {
+
+    private final AuthenticationManager authenticationManager; // Checks the credentials
+    private final JwtTokenService jwtTokenService; // Issues the tokens
+    private final UserCache userCache; // Resolves the user id put in the token
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param authenticationManager the AuthenticationManager to use
+     * @param jwtTokenService       the JwtTokenService to use
+     * @param userCache             the UserCache to use
+     */
+    public AuthController(AuthenticationManager authenticationManager, JwtTokenService jwtTokenService, UserCache userCache) {
+        this.authenticationManager = authenticationManager;
+        this.jwtTokenService = jwtTokenService;
+        this.userCache = userCache;
+    }
+
+
+
+    @Operation(summary = "Issue a token", description = "Authenticate with username and password and get a signed JWT")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Token issued",
+            content = @Content(schema = @Schema(implementation = TokenDto.class))),
+            @ApiResponse(responseCode = "401", description = "Bad credentials")})
+    @PostMapping("/token")
+    public ResponseEntity<TokenDto> issueToken(@RequestBody RequestDto requestDto) {
+        try {
+            authenticationManager.authenticate(
+                    UsernamePasswordAuthenticationToken.unauthenticated(requestDto.getUserName(), requestDto.getPassword()));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Long userId = userCache.findByUserName(requestDto.getUserName())
+                .orElseThrow(() -> new IllegalStateException("authenticated user not found"))
+                .getId();
+        return ResponseEntity.ok(jwtTokenService.issue(new AuthenticatedUser(userId, requestDto.getUserName())));
+    }
+}
@@ -0,0 +1,138 @@
+package web;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Minimal RFC 4180 CSV support for the import and export endpoints.
+ * Records are read one at a time from a Reader, so a body of any size is
+ * parsed with constant memory. Quoted fields may hold commas, quotes and line breaks.
+ */
+final class CsvFormat {
+
+    private CsvFormat() {
+    }
+
+    /**
+     * Format one record as a CSV line, quoting fields where needed. Null fields are written empty.
+     *
+     * @param fields the fields of the record
+     * @return the line, ending with CRLF
+     */
+    static String line(Object... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String field = fields[i] == null ? "" : fields[i].toString();
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(field);
+            }
+        }
+        return line.append("\r\n").toString();
+    }
+
+    /**
+     * Read the records of a CSV body lazily. Read failures surface as UncheckedIOException,
+     * malformed quoting as IllegalArgumentException.
+     *
+     * @param reader the reader of the body, buffered by the caller
+     * @return an iterator over the records, each a list of fields
+     */
+    static Iterator<List<String>> read(Reader reader) {
+        return new Iterator<>() {
+            private List<String> next; // Record read ahead by hasNext
+            private boolean eof;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !eof) {
+                    next = readRecord(reader);
+                    eof = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public List<String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<String> record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Read one record, skipping blank lines.
+     *
+     * @return the fields of the record, or null at the end of the body
+     */
+    private static List<String> readRecord(Reader reader) {
+        try {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false; // Inside a quoted field
+            boolean empty = true; // Nothing read for this record yet
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (quoted) {
+                    if (c != '"') {
+                        field.append((char) c);
+                        continue;
+                    }
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"'); // Escaped quote
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                    empty = false;
+                } else if (c == '"') {
+                    throw new IllegalArgumentException("unexpected quote inside an unquoted field");
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    empty = false;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    if (!empty) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                } else {
+                    field.append((char) c);
+                    empty = false;
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("unterminated quoted field");
+            }
+            if (empty) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
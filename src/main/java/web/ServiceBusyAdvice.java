@@ -0,0 +1,33 @@
+package web;
+
+import exception.ServiceBusyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Controller advice answering a ServiceBusyException thrown by a controller or a service with a 503.
+ * The response is written here rather than through an error dispatch, so it carries Retry-After
+ * like the ones written by ServiceBusyFilter.
+ */
+@RestControllerAdvice
+public class ServiceBusyAdvice {
+
+    /**
+     * Handle a request shed because a bounded resource was saturated.
+     *
+     * @param e the exception thrown by the handler
+     * @return a 503 response asking the client to retry later
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<String> handleServiceBusy(ServiceBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                // Ask clients to back off briefly instead of retrying immediately
+                .header(HttpHeaders.RETRY_AFTER, ServiceBusyException.RETRY_AFTER_SECONDS)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body("service busy, retry later");
+    }
+}
@@ -6,12 +6,14 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan("model")
-@ComponentScan(basePackages = {"mapper","repository","service","web","config","aspect"})
+@ComponentScan(basePackages = {"mapper","repository","service","web","config","aspect","cache","event"})
 @EnableJpaRepositories(basePackages = {"repository"})
 @EnableAspectJAutoProxy
+@EnableScheduling
 public class ToDoListApplication {
 
     public static void main(String[] args) {
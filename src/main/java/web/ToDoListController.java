@@ -1,7 +1,14 @@
 package web;
 
+import aspect.StatementBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ChangeSetDto;
+import dto.CursorPageDto;
+import dto.ToDoListBoardDto;
 import dto.ToDoListDto;
 import dto.ToDoListItemDto;
+import dto.ToDoListItemRowDto;
+import dto.ToDoListSummaryDto;
 import exception.ExistException;
 import exception.NotFoundException;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,10 +17,22 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import service.ToDoListService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.List;
 
@@ -27,24 +46,135 @@ import java.util.List;
 public class ToDoListController {
 
     private final ToDoListService toDoListService; // Service to handle business logic
+    private final ObjectMapper objectMapper; // Serializes exported rows
 
     /**
      * Constructor for dependency injection.
      *
      * @param toDoListService the ToDoListService to use
+     * @param objectMapper    the ObjectMapper used to write NDJSON lines
      */
-    public ToDoListController(ToDoListService toDoListService) {
+    public ToDoListController(ToDoListService toDoListService, ObjectMapper objectMapper) {
         this.toDoListService = toDoListService;
+        this.objectMapper = objectMapper;
     }
 
 
     @Operation(summary = "Get all ToDo lists", description = "Retrieve all ToDo lists of the currently authenticated user")
-    @ApiResponse(responseCode = "200", description = "Successfully retrieved lists",
-            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ToDoListDto.class))))
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Successfully retrieved lists",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ToDoListDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Lists unchanged since the given ETag")})
     @GetMapping
-    public ResponseEntity<List<ToDoListDto>> getAllToDoList(Principal principal) throws NotFoundException {
+    @StatementBudget(3)
+    public ResponseEntity<List<ToDoListDto>> getAllToDoList(Principal principal, WebRequest request) throws NotFoundException {
         String username = principal.getName(); // Get username from token/session
-        return ResponseEntity.ok(toDoListService.getAllToDoListByUsername(username));
+        String eTag = toDoListService.getToDoListETag(username); // Read before the data it describes
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null; // 304 already written, nothing is loaded
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toDoListService.getAllToDoListByUsername(username));
+    }
+
+
+    @Operation(summary = "Get a page of ToDo lists", description = "Retrieve ToDo lists of the currently authenticated user using cursor pagination on id")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Successfully retrieved page",
+            content = @Content(schema = @Schema(implementation = CursorPageDto.class))),
+            @ApiResponse(responseCode = "304", description = "Page unchanged since the given ETag")})
+    @GetMapping("/page")
+    @StatementBudget(3)
+    public ResponseEntity<CursorPageDto<ToDoListDto>> getToDoListPage(@RequestParam(required = false) Long after,
+                                                                       @RequestParam(defaultValue = "50") int size,
+                                                                       Principal principal, WebRequest request) throws NotFoundException {
+        String username = principal.getName(); // Get username from token/session
+        String eTag = toDoListService.getToDoListETag(username);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toDoListService.getToDoListPageByUsername(username, after, size));
+    }
+
+
+    @Operation(summary = "Get the ToDo board", description = "Retrieve all ToDo lists of the currently authenticated user with their items in one response")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Successfully retrieved board",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ToDoListBoardDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Board unchanged since the given ETag")})
+    @GetMapping("/board")
+    @StatementBudget(3)
+    public ResponseEntity<List<ToDoListBoardDto>> getBoard(Principal principal, WebRequest request) throws NotFoundException {
+        String username = principal.getName(); // Get username from token/session
+        String eTag = toDoListService.getToDoListETag(username);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toDoListService.getBoardByUsername(username));
+    }
+
+
+    @Operation(summary = "Get the ToDo summary", description = "Retrieve all ToDo lists of the currently authenticated user with their total, done and open item counts")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Successfully retrieved summary",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ToDoListSummaryDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Summary unchanged since the given ETag")})
+    @GetMapping("/summary")
+    @StatementBudget(3)
+    public ResponseEntity<List<ToDoListSummaryDto>> getSummary(Principal principal, WebRequest request) throws NotFoundException {
+        String username = principal.getName(); // Get username from token/session
+        String eTag = toDoListService.getToDoListETag(username);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toDoListService.getSummaryByUsername(username));
+    }
+
+
+    @Operation(summary = "Export all ToDo lists", description = "Stream every item of the currently authenticated user with its list, as NDJSON (format=ndjson) or CSV (format=csv)")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Rows streamed in list and item order",
+            content = @Content(schema = @Schema(implementation = ToDoListItemRowDto.class))),
+            @ApiResponse(responseCode = "400", description = "Unknown format")})
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportToDoLists(@RequestParam(defaultValue = "ndjson") String format,
+                                                                 Principal principal) {
+        String username = principal.getName(); // Get username from token/session
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("ndjson")) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            if (csv) {
+                out.write(CsvFormat.line("listId", "listName", "id", "title", "isDone").getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                // Each row is written as soon as it is read from the cursor
+                toDoListService.exportByUsername(username, row -> write(out, csv, row));
+            } catch (NotFoundException e) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(csv ? "todolists.csv" : "todolists.ndjson").build().toString())
+                .body(body);
+    }
+
+
+    @Operation(summary = "Get changes since a sync token", description = "Retrieve the lists and items of the currently authenticated user created, updated or deleted since the given token; without a token the full state is returned")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved changes",
+            content = @Content(schema = @Schema(implementation = ChangeSetDto.class)))
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto> getChanges(@RequestParam(required = false) Long since,
+                                                   Principal principal) throws NotFoundException {
+        String username = principal.getName(); // Get username from token/session
+        return ResponseEntity.ok(toDoListService.getChangesByUsername(username, since));
+    }
+
+
+    @Operation(summary = "Subscribe to changes", description = "Open a Server-Sent Events stream announcing every change of the currently authenticated user's lists and items; each event id is a sync token")
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                       Principal principal) throws NotFoundException {
+        String username = principal.getName(); // Get username from token/session
+        return toDoListService.subscribeChanges(username, lastEventId);
     }
 
 
@@ -69,6 +199,15 @@ public class ToDoListController {
     }
 
 
+    @Operation(summary = "Delete all todolists", description = "Delete every todolist of the logged-in user with their items")
+    @ApiResponse(responseCode = "200", description = "ToDo lists deleted, body is the number of deleted lists")
+    @DeleteMapping
+    public ResponseEntity<Integer> deleteAllToDoList(Principal principal) throws NotFoundException {
+        String userName = principal.getName();
+        return ResponseEntity.ok(toDoListService.deleteAllToDoListByUsername(userName));
+    }
+
+
     @Operation(summary = "Add item to a ToDo list", description = "Add an item to a specific ToDo list by ID")
     @ApiResponses({@ApiResponse(responseCode = "200", description = "Item added successfully"),
             @ApiResponse(responseCode = "404", description = "ToDo list not found")})
@@ -77,4 +216,21 @@ public class ToDoListController {
         toDoListService.addItemToList(id, toDoListItemDto);
         return ResponseEntity.ok("added.");
     }
+
+    /**
+     * Write one exported row as an NDJSON or CSV line.
+     */
+    private void write(OutputStream out, boolean csv, ToDoListItemRowDto row) {
+        try {
+            if (csv) {
+                out.write(CsvFormat.line(row.getListId(), row.getListName(), row.getId(), row.getTitle(), row.getIsDone())
+                        .getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,6 +1,12 @@
 package web;
 
+import aspect.StatementBudget;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.CursorPageDto;
+import dto.ImportProgressDto;
 import dto.ToDoListItemDto;
+import exception.ConflictException;
 import exception.NotFoundException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -8,12 +14,25 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import service.ToDoListImportService;
 import service.ToDoListItemService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -24,16 +43,25 @@ import java.util.List;
 @RequestMapping("/todo-items")
 public class ToDoListItemController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv"; // Media type of CSV imports
+
     private final ToDoListItemService toDoListItemService; // Service to handle business logic
+    private final ToDoListImportService toDoListImportService; // Service importing items in chunks
+    private final ObjectMapper objectMapper; // Serializes streamed items
 
     /**
      * Constructor for dependency injection.
      *
-     * @param toDoListItemService the ToDoListItemService to use
+     * @param toDoListItemService   the ToDoListItemService to use
+     * @param toDoListImportService the ToDoListImportService to use
+     * @param objectMapper          the ObjectMapper used to read and write NDJSON lines
      */
     @Autowired
-    public ToDoListItemController(ToDoListItemService toDoListItemService) {
+    public ToDoListItemController(ToDoListItemService toDoListItemService, ToDoListImportService toDoListImportService,
+                                  ObjectMapper objectMapper) {
         this.toDoListItemService = toDoListItemService;
+        this.toDoListImportService = toDoListImportService;
+        this.objectMapper = objectMapper;
     }
 
 
@@ -41,10 +69,53 @@ public class ToDoListItemController {
     @Operation(summary = "Get all todolist item", description = "Get all todolist with todolist id")
     @ApiResponses({@ApiResponse(responseCode = "200", description = "Successfully retrieved all items for the ToDo list",
             content = @Content(array = @ArraySchema(schema = @Schema(implementation = ToDoListItemDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Items unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "ToDo list not found")})
     @GetMapping("/todolist-item/{toDoListId}")
-    public ResponseEntity<List<ToDoListItemDto>> getAllToDoListItem(@PathVariable Long toDoListId) {
-        return ResponseEntity.ok(toDoListItemService.getAllToDoListItem(toDoListId));
+    @StatementBudget(3)
+    public ResponseEntity<List<ToDoListItemDto>> getAllToDoListItem(@PathVariable Long toDoListId, WebRequest request) {
+        String eTag = toDoListItemService.getToDoListItemETag(toDoListId); // Read before the data it describes
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null; // 304 already written, nothing is loaded
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toDoListItemService.getAllToDoListItem(toDoListId));
+    }
+
+
+
+    @Operation(summary = "Get a page of todolist items", description = "Get items of a todolist using cursor pagination on id")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Successfully retrieved page",
+            content = @Content(schema = @Schema(implementation = CursorPageDto.class))),
+            @ApiResponse(responseCode = "304", description = "Page unchanged since the given ETag")})
+    @GetMapping("/todolist-item/{toDoListId}/page")
+    @StatementBudget(3)
+    public ResponseEntity<CursorPageDto<ToDoListItemDto>> getToDoListItemPage(@PathVariable Long toDoListId,
+                                                                              @RequestParam(required = false) Long after,
+                                                                              @RequestParam(defaultValue = "50") int size,
+                                                                              WebRequest request) {
+        String eTag = toDoListItemService.getToDoListItemETag(toDoListId);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toDoListItemService.getToDoListItemPage(toDoListId, after, size));
+    }
+
+
+
+    @Operation(summary = "Stream todolist items", description = "Stream all items of a todolist as newline-delimited JSON")
+    @ApiResponse(responseCode = "200", description = "Items streamed as NDJSON")
+    @GetMapping(value = "/todolist-item/{toDoListId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamToDoListItem(@PathVariable Long toDoListId) {
+        StreamingResponseBody body = out -> toDoListItemService.streamAllToDoListItem(toDoListId, item -> {
+            try {
+                // One JSON document per line, written as soon as the row is read
+                out.write(objectMapper.writeValueAsBytes(item));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
 
@@ -60,6 +131,75 @@ public class ToDoListItemController {
 
 
 
+    @Operation(summary = "Create many ToDoList items", description = "Creates all given items in the specified ToDo list in one transaction")
+    @ApiResponses({@ApiResponse(responseCode = "201", description = "Items created successfully, body is the number of created items"),
+            @ApiResponse(responseCode = "404", description = "Parent ToDo list not found")})
+    @PostMapping("/{toDoListId}/bulk")
+    public ResponseEntity<Integer> createItems(@RequestBody List<ToDoListItemDto> toDoListItemDtos, @PathVariable Long toDoListId) throws NotFoundException {
+        return new ResponseEntity<>(toDoListItemService.createItems(toDoListItemDtos, toDoListId), HttpStatus.CREATED);
+    }
+
+
+
+    @Operation(summary = "Import ToDoList items", description = "Streams items into the specified ToDo list from NDJSON, a JSON array or CSV with a header row (title, isDone); "
+            + "items are committed in chunks and the progress is streamed back as NDJSON")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Import ran, one progress line per committed chunk and a last one with done=true",
+            content = @Content(schema = @Schema(implementation = ImportProgressDto.class))),
+            @ApiResponse(responseCode = "404", description = "Parent ToDo list not found")})
+    @PostMapping(value = "/{toDoListId}/import", produces = MediaType.APPLICATION_NDJSON_VALUE,
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE, TEXT_CSV_VALUE})
+    public ResponseEntity<StreamingResponseBody> importItems(@PathVariable Long toDoListId, HttpServletRequest request) throws NotFoundException {
+        toDoListImportService.checkToDoList(toDoListId); // Checked up front, a streamed response cannot turn into a 404
+        boolean csv = request.getContentType().toLowerCase().startsWith(TEXT_CSV_VALUE);
+        StreamingResponseBody body = out -> {
+            // The request body is parsed while it arrives, one record at a time
+            InputStream in = request.getInputStream();
+            Iterator<ToDoListItemDto> records = csv ? readCsv(in) : readJson(in);
+            toDoListImportService.importItems(toDoListId, records, progress -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(progress));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+
+
+    @Operation(summary = "Set status of many items", description = "Sets the 'isDone' status of all given items of the user with one update")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Status updated, body is the number of updated items"),
+            @ApiResponse(responseCode = "404", description = "An item does not exist or belongs to another user")})
+    @PatchMapping("/bulk/done")
+    public ResponseEntity<Integer> bulkUpdateIsDone(@RequestBody List<Long> ids, @RequestParam(defaultValue = "true") boolean done,
+                                                    Principal principal) throws NotFoundException {
+        return ResponseEntity.ok(toDoListItemService.bulkUpdateIsDone(principal.getName(), ids, done));
+    }
+
+
+
+    @Operation(summary = "Delete many items", description = "Deletes all given items of the user with one delete")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Items deleted, body is the number of deleted items"),
+            @ApiResponse(responseCode = "404", description = "An item does not exist or belongs to another user")})
+    @DeleteMapping("/bulk")
+    public ResponseEntity<Integer> deleteItems(@RequestBody List<Long> ids, Principal principal) throws NotFoundException {
+        return ResponseEntity.ok(toDoListItemService.deleteItems(principal.getName(), ids));
+    }
+
+
+
+    @Operation(summary = "Delete completed items", description = "Deletes all done items of the specified ToDo list")
+    @ApiResponse(responseCode = "200", description = "Items deleted, body is the number of deleted items")
+    @DeleteMapping("/todolist-item/{toDoListId}/completed")
+    public ResponseEntity<Integer> deleteCompletedItems(@PathVariable Long toDoListId) {
+        return ResponseEntity.ok(toDoListItemService.deleteCompletedItems(toDoListId));
+    }
+
+
+
     @Operation(summary = "Delete an item", description = "Deletes the item with the specified ID")
     @ApiResponses({@ApiResponse(responseCode = "204", description = "Item deleted successfully"),
             @ApiResponse(responseCode = "404", description = "Item not found")})
@@ -71,12 +211,79 @@ public class ToDoListItemController {
 
 
 
-    @Operation(summary = "Toggle item status", description = "Toggles the 'isDone' status of a ToDoList item")
-    @ApiResponses({@ApiResponse(responseCode = "200", description = "Status updated successfully"),
-            @ApiResponse(responseCode = "404", description = "Item not found")})
+    @Operation(summary = "Toggle item status", description = "Toggles the 'isDone' status of a ToDoList item, optionally only if it still has the given version")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "Status updated successfully",
+            content = @Content(schema = @Schema(implementation = ToDoListItemDto.class))),
+            @ApiResponse(responseCode = "404", description = "Item not found"),
+            @ApiResponse(responseCode = "409", description = "Item was modified since the given version")})
     @PatchMapping("/{id}/toggle-done")
-    public ResponseEntity<Void> updateIsDone(@PathVariable Long id) throws NotFoundException {
-        toDoListItemService.updateIsDone(id);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<ToDoListItemDto> updateIsDone(@PathVariable Long id, @RequestParam(required = false) Long version) throws NotFoundException, ConflictException {
+        return ResponseEntity.ok(toDoListItemService.updateIsDone(id, version));
+    }
+
+    /**
+     * Read NDJSON or a JSON array as items. The parser is opened on the first
+     * call, so a malformed body is reported as a failed record like any later error.
+     */
+    private Iterator<ToDoListItemDto> readJson(InputStream in) {
+        return new Iterator<>() {
+            private MappingIterator<ToDoListItemDto> records;
+
+            @Override
+            public boolean hasNext() {
+                if (records == null) {
+                    try {
+                        records = objectMapper.readerFor(ToDoListItemDto.class).readValues(in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return records.hasNext();
+            }
+
+            @Override
+            public ToDoListItemDto next() {
+                hasNext();
+                return records.next();
+            }
+        };
+    }
+
+    /**
+     * Read CSV records as items. The header row names the columns; "title" is
+     * required, "isDone" is optional and other columns are ignored, so exports
+     * can be imported as they are.
+     */
+    private static Iterator<ToDoListItemDto> readCsv(InputStream in) {
+        Iterator<List<String>> records = CsvFormat.read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        return new Iterator<>() {
+            private int titleColumn = -1;
+            private int isDoneColumn = -1;
+
+            @Override
+            public boolean hasNext() {
+                if (titleColumn < 0 && records.hasNext()) {
+                    List<String> header = records.next().stream().map(String::trim).toList();
+                    titleColumn = header.indexOf("title");
+                    isDoneColumn = header.indexOf("isDone");
+                    if (titleColumn < 0) {
+                        throw new IllegalArgumentException("CSV header has no title column");
+                    }
+                }
+                return records.hasNext();
+            }
+
+            @Override
+            public ToDoListItemDto next() {
+                hasNext();
+                List<String> record = records.next();
+                ToDoListItemDto item = new ToDoListItemDto();
+                item.setTitle(titleColumn < record.size() ? record.get(titleColumn) : null);
+                if (isDoneColumn >= 0 && isDoneColumn < record.size()) {
+                    item.setIsDone(Boolean.parseBoolean(record.get(isDoneColumn).trim()));
+                }
+                return item;
+            }
+        };
     }
 }
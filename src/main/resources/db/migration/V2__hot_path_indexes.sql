@@ -0,0 +1,10 @@
+-- Indexes behind the hot repository queries.
+
+-- UserRepository.findByUserName / existsByUserName, run on every request
+create unique index ux_user_user_name on user (user_name);
+
+-- ToDoListRepository.existsByTitleAndUserEntity_Id and findByUserEntity_Id
+create index ix_todo_list_user_id_title on todo_list (user_id, title);
+
+-- TodoListItemRepository.findByToDoListEntity_Id and the done/completed filters
+create index ix_todo_list_item_todolist_id_is_done on todo_list_item (todolist_id, is_done);
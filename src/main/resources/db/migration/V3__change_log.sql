@@ -0,0 +1,18 @@
+-- Per-user change sequence and change log behind the delta-sync endpoint.
+
+-- Last change sequence number handed out to each user
+alter table user add column change_seq bigint not null default 0;
+
+-- Latest change of every list and item, deleted ones kept as tombstones
+create table todo_change (
+    entity_type varchar(8) not null,
+    entity_id   bigint     not null,
+    user_id     bigint     not null,
+    list_id     bigint     not null,
+    seq         bigint     not null,
+    deleted     bit        not null,
+    primary key (entity_type, entity_id)
+) engine = InnoDB;
+
+-- ChangeRepository.findByUserIdAndSeqGreaterThanOrderBySeq
+create index ix_todo_change_user_id_seq on todo_change (user_id, seq);
@@ -0,0 +1,4 @@
+-- Optimistic-locking version of items, checked by the conditional toggle UPDATE.
+
+-- Existing items start at version 0, as Hibernate does for new ones
+alter table todo_list_item add column version bigint not null default 0;
@@ -0,0 +1,114 @@
+package aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The adaptive limit fed with latency and overload samples. A fake clock moves one window
+ * at a time, so each call of window() closes exactly one window with the given samples.
+ */
+class AdaptiveLimitTest {
+
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long STATEMENT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+    private final AdaptiveLimit limit = new AdaptiveLimit(20, 4, 200, 1.5, () -> now);
+
+    @Test
+    void sharesCapTheSlots() {
+        assertEquals(10, acquireAll(0.5));
+        assertEquals(10, acquireAll(1.0)); // Higher priorities still get the rest
+        assertFalse(limit.tryAcquire(1.0));
+        assertEquals(20, limit.getInFlight());
+    }
+
+    @Test
+    void healthyLatencyGrowsTheLimitUpToTheMaximum() {
+        window(0);
+        window(0);
+        assertTrue(limit.getLimit() > 20, () -> "limit " + limit.getLimit());
+
+        for (int i = 0; i < 300; i++) {
+            window(0);
+        }
+        assertEquals(200, limit.getLimit());
+    }
+
+    @Test
+    void queueingShrinksTheLimitDownToTheMinimum() {
+        window(0); // Baseline
+        int before = limit.getLimit();
+
+        window(10 * STATEMENT);
+        assertTrue(limit.getLimit() < before, () -> "limit " + limit.getLimit() + " from " + before);
+
+        for (int i = 0; i < 100; i++) {
+            window(10 * STATEMENT);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    void overloadBacksOff() {
+        acquireAll(1.0);
+        now += WINDOW;
+        limit.release(true); // An overload closes the window without waiting for samples
+
+        assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void limitRecoversOnceQueueingStops() {
+        for (int i = 0; i < 20; i++) {
+            window(10 * STATEMENT);
+        }
+        int shrunk = limit.getLimit();
+
+        for (int i = 0; i < 40; i++) {
+            window(0);
+        }
+        assertTrue(limit.getLimit() > 20, () -> "limit " + limit.getLimit() + " from " + shrunk);
+    }
+
+    @Test
+    void unusedLimitDoesNotGrow() {
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertTrue(limit.tryAcquire(1.0));
+                if (j == 4) {
+                    now += WINDOW;
+                }
+                limit.release(0, STATEMENT, false); // One call in flight at a time
+            }
+        }
+        assertEquals(20, limit.getLimit());
+    }
+
+    /**
+     * Fill the limit, move the clock one window on and release every call with the same
+     * samples. Only the last release sees the new time, so the window holds all of them.
+     */
+    private void window(long waitNanos) {
+        int calls = acquireAll(1.0);
+        for (int i = 0; i < calls; i++) {
+            if (i == calls - 1) {
+                now += WINDOW;
+            }
+            limit.release(waitNanos, STATEMENT, false);
+        }
+    }
+
+    private int acquireAll(double share) {
+        int calls = 0;
+        while (limit.tryAcquire(share)) {
+            calls++;
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.todolist;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import web.ToDoListApplication;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Access to the actuator endpoints: the health check is public, while the Prometheus
+ * scrape, which reveals per-method latencies, error classes and pool state, needs an
+ * authenticated user.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureObservability // Metrics export is off in tests otherwise
+@ActiveProfiles("test")
+class ActuatorSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void anonymousScrapeIsRedirectedToLogin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().is3xxRedirection());
+    }
+
+    @Test
+    void authenticatedScrapeGetsMetrics() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(user("scraper")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("todolist_")));
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.todolist;
+
+import dto.ToDoListItemDto;
+import exception.NotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import service.ToDoListService;
+import web.ToDoListApplication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Appending an item through ToDoListService.addItemToList, measured with Hibernate statistics.
+ * The parent list is only referenced, so the statements must not depend on how many
+ * items the list already holds, and its item collection must never be loaded.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@ActiveProfiles("test")
+@Import(TestData.class)
+class AddItemStatementCountTest {
+
+    @Autowired
+    private ToDoListService toDoListService;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void statementsDoNotGrowWithTheList() throws Exception {
+        Long smallList = createList(1);
+        Long largeList = createList(2000);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // First appends pay for a fresh block of ids and for resolving each owner
+        toDoListService.addItemToList(smallList, newItem());
+        toDoListService.addItemToList(largeList, newItem());
+
+        statistics.clear();
+        toDoListService.addItemToList(smallList, newItem());
+        long smallStatements = statistics.getPrepareStatementCount();
+        assertEquals(0, statistics.getCollectionFetchCount());
+
+        statistics.clear();
+        toDoListService.addItemToList(largeList, newItem());
+        assertEquals(smallStatements, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void missingListIsNotFound() {
+        assertThrows(NotFoundException.class, () -> toDoListService.addItemToList(Long.MAX_VALUE, newItem()));
+    }
+
+    private Long createList(int items) {
+        return testData.createList(testData.createUser("append"), "append", items).getId();
+    }
+
+    private static ToDoListItemDto newItem() {
+        ToDoListItemDto item = new ToDoListItemDto();
+        item.setTitle("appended");
+        return item;
+    }
+}
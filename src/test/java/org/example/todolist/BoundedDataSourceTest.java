@@ -0,0 +1,103 @@
+package org.example.todolist;
+
+import config.BoundedDataSource;
+import exception.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Permits of the bounded DataSource with a single permit, so whether another thread can
+ * open a connection shows whether the permit is still held.
+ */
+class BoundedDataSourceTest {
+
+    private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    private final DataSource pool = mock(DataSource.class);
+    private final BoundedDataSource dataSource = new BoundedDataSource(pool, 1, 1, Duration.ofMillis(50));
+
+    BoundedDataSourceTest() throws SQLException {
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+    }
+
+    @AfterEach
+    void stopOtherThread() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    void permitIsReturnedWhenTheLastConnectionCloses() throws Exception {
+        Connection outer = dataSource.getConnection();
+        Connection inner = dataSource.getConnection(); // Nested, no second permit needed
+
+        outer.close(); // Closed first, as a REQUIRES_NEW caller's outer connection may be
+        assertFalse(otherThreadCanConnect());
+
+        inner.close();
+        assertTrue(otherThreadCanConnect());
+    }
+
+    @Test
+    void innerConnectionClosedFirstKeepsThePermit() throws Exception {
+        Connection outer = dataSource.getConnection();
+        dataSource.getConnection().close();
+        assertFalse(otherThreadCanConnect());
+
+        outer.close();
+        assertTrue(otherThreadCanConnect());
+    }
+
+    @Test
+    void repeatedCloseCountsOnce() throws Exception {
+        Connection outer = dataSource.getConnection();
+        Connection inner = dataSource.getConnection();
+        inner.close();
+        inner.close();
+        assertFalse(otherThreadCanConnect());
+
+        outer.close();
+        assertTrue(otherThreadCanConnect());
+    }
+
+    @Test
+    void failedOpenReturnsThePermit() throws Exception {
+        when(pool.getConnection()).thenThrow(new SQLException("pool exhausted"))
+                .thenAnswer(invocation -> mock(Connection.class));
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertTrue(otherThreadCanConnect());
+    }
+
+    /**
+     * Open and close a connection on another thread.
+     *
+     * @return false if it was rejected because no permit was free
+     */
+    private boolean otherThreadCanConnect() throws InterruptedException {
+        try {
+            otherThread.submit(() -> {
+                dataSource.getConnection().close();
+                return null;
+            }).get();
+            return true;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceBusyException) {
+                return false;
+            }
+            throw new AssertionError(e.getCause());
+        }
+    }
+}
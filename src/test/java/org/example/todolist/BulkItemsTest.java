@@ -0,0 +1,150 @@
+package org.example.todolist;
+
+import aspect.QueryStats;
+import model.ToDoListEntity;
+import model.ToDoListItemEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The bulk item endpoints: set-done and delete run the same statements for two items as
+ * for two hundred, and touch nothing when any of the ids belongs to another user.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class BulkItemsTest {
+
+    private static final int ITEMS = 200;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+    private ToDoListEntity list;
+    private List<Long> ids;
+    private ToDoListEntity otherList;
+
+    @BeforeEach
+    void createLists() {
+        UserEntity owner = testData.createUser("bulk");
+        userName = owner.getUserName();
+        list = testData.createList(owner, "bulk", ITEMS);
+        ids = testData.items(list).stream().map(ToDoListItemEntity::getId).toList();
+        otherList = testData.createList(testData.createUser("bulk-other"), "other", 2);
+    }
+
+    @Test
+    void createReturnsTheNumberOfItems() throws Exception {
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            titles.add("{\"title\":\"new " + i + "\"}");
+        }
+        mockMvc.perform(post("/todo-items/" + list.getId() + "/bulk").with(user(userName))
+                        .contentType("application/json").content("[" + String.join(",", titles) + "]"))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(Integer.toString(ITEMS)));
+
+        assertEquals(2 * ITEMS, testData.items(list).size());
+    }
+
+    @Test
+    void setDoneCostsTheSameForAnyNumberOfItems() throws Exception {
+        perform(setDone(ids.subList(0, 2), false)); // Warms the user cache
+
+        long two = perform(setDone(ids.subList(0, 2), true));
+        long all = perform(setDone(ids, true));
+
+        assertEquals(two, all);
+        assertTrue(testData.items(list).stream().allMatch(ToDoListItemEntity::getIsDone));
+    }
+
+    @Test
+    void deleteCostsTheSameForAnyNumberOfItems() throws Exception {
+        perform(setDone(ids.subList(0, 2), false)); // Warms the user cache
+
+        long two = perform(deleteItems(ids.subList(0, 2)));
+        long rest = perform(deleteItems(ids.subList(2, ids.size())));
+
+        assertEquals(two, rest);
+        assertTrue(testData.items(list).isEmpty());
+    }
+
+    @Test
+    void idsOfAnotherUserAreNotFoundAndNothingChanges() throws Exception {
+        List<Long> mixed = new ArrayList<>(ids.subList(0, 2));
+        mixed.add(testData.firstItem(otherList).getId());
+
+        mockMvc.perform(setDone(mixed, true)).andExpect(status().isNotFound());
+        mockMvc.perform(deleteItems(mixed)).andExpect(status().isNotFound());
+
+        assertEquals(ITEMS, testData.items(list).size());
+        assertEquals(2, testData.items(otherList).size());
+        assertTrue(testData.items(list).stream().noneMatch(ToDoListItemEntity::getIsDone));
+        assertTrue(testData.items(otherList).stream().noneMatch(ToDoListItemEntity::getIsDone));
+    }
+
+    @Test
+    void completedItemsOfTheListAreDeleted() throws Exception {
+        perform(setDone(ids.subList(0, 50), true));
+
+        mockMvc.perform(delete("/todo-items/todolist-item/" + list.getId() + "/completed").with(user(userName)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("50"));
+
+        assertEquals(ITEMS - 50, testData.items(list).size());
+        assertTrue(testData.items(list).stream().noneMatch(ToDoListItemEntity::getIsDone));
+    }
+
+    private RequestBuilder setDone(List<Long> itemIds, boolean done) {
+        return patch("/todo-items/bulk/done").param("done", Boolean.toString(done)).with(user(userName))
+                .contentType("application/json").content(json(itemIds));
+    }
+
+    private RequestBuilder deleteItems(List<Long> itemIds) {
+        return delete("/todo-items/bulk").with(user(userName))
+                .contentType("application/json").content(json(itemIds));
+    }
+
+    /**
+     * Perform a request that must succeed.
+     *
+     * @return the number of statements it ran
+     */
+    private long perform(RequestBuilder request) throws Exception {
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(request).andExpect(status().isOk());
+            return stats.getStatements();
+        }
+    }
+
+    private static String json(List<Long> itemIds) {
+        return itemIds.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
+}
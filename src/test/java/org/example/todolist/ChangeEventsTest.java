@@ -0,0 +1,135 @@
+package org.example.todolist;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ChangeSetDto;
+import model.ToDoListEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import web.ToDoListApplication;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The Server-Sent Events channel: a new subscriber is told the current sync token, a
+ * reconnect with an up-to-date Last-Event-ID is not, and each committed write of the
+ * user, and only of that user, reaches the open stream as a change event.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class ChangeEventsTest {
+
+    private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+    private Long itemId;
+
+    @BeforeEach
+    void createList() {
+        UserEntity owner = testData.createUser("events");
+        userName = owner.getUserName();
+        ToDoListEntity list = testData.createList(owner, "watched", 1);
+        itemId = testData.firstItem(list).getId();
+    }
+
+    @Test
+    void newSubscriberCatchesUpAndThenGetsEachWrite() throws Exception {
+        long token = syncToken(userName);
+        MockHttpServletResponse stream = subscribe(get("/todolists/events"));
+        awaitEvent(stream, token);
+
+        mockMvc.perform(patch("/todo-items/" + itemId + "/toggle-done").with(user(userName)))
+                .andExpect(status().isOk());
+        awaitEvent(stream, syncToken(userName));
+    }
+
+    @Test
+    void upToDateReconnectGetsNoCatchUpEvent() throws Exception {
+        long token = syncToken(userName);
+        MockHttpServletResponse stream = subscribe(get("/todolists/events").header("Last-Event-ID", token));
+
+        mockMvc.perform(patch("/todo-items/" + itemId + "/toggle-done").with(user(userName)))
+                .andExpect(status().isOk());
+        long next = syncToken(userName);
+        awaitEvent(stream, next);
+        assertFalse(stream.getContentAsString().contains("id:" + token + "\n"), () -> contentOf(stream));
+    }
+
+    @Test
+    void writesOfOtherUsersAreNotSent() throws Exception {
+        long token = syncToken(userName);
+        MockHttpServletResponse stream = subscribe(get("/todolists/events").header("Last-Event-ID", token));
+
+        UserEntity other = testData.createUser("events-other");
+        Long otherItem = testData.firstItem(testData.createList(other, "other", 1)).getId();
+        mockMvc.perform(patch("/todo-items/" + otherItem + "/toggle-done").with(user(other.getUserName())))
+                .andExpect(status().isOk());
+
+        // Then a write of the subscriber, which must be the only event on the stream
+        mockMvc.perform(patch("/todo-items/" + itemId + "/toggle-done").with(user(userName)))
+                .andExpect(status().isOk());
+        awaitEvent(stream, syncToken(userName));
+        String content = stream.getContentAsString();
+        assertTrue(content.indexOf("event:change") == content.lastIndexOf("event:change"), content);
+    }
+
+    private MockHttpServletResponse subscribe(MockHttpServletRequestBuilder builder) throws Exception {
+        return mockMvc.perform(builder.with(user(userName)))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private long syncToken(String name) throws Exception {
+        String body = mockMvc.perform(get("/todolists/changes").with(user(name)))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, ChangeSetDto.class).getSyncToken();
+    }
+
+    /**
+     * Wait until the stream holds the change event of the given sync token.
+     */
+    private static void awaitEvent(MockHttpServletResponse stream, long seq) throws Exception {
+        String event = "id:" + seq + "\nevent:change\ndata:{\"seq\":" + seq + "}";
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!stream.getContentAsString().contains(event)) {
+            assertTrue(System.currentTimeMillis() < deadline, () -> "no event " + seq + " in " + contentOf(stream));
+            Thread.sleep(10);
+        }
+    }
+
+    private static String contentOf(MockHttpServletResponse stream) {
+        try {
+            return stream.getContentAsString();
+        } catch (Exception e) {
+            return e.toString();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.todolist;
+
+import aspect.QueryStats;
+import model.ToDoListEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import web.ToDoListApplication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs of lists, board and items: a request carrying the current ETag is
+ * answered with 304 without a single SQL statement, and any write changes the ETag.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+    private ToDoListEntity list;
+
+    @BeforeEach
+    void createList() {
+        UserEntity owner = testData.createUser("etag");
+        userName = owner.getUserName();
+        list = testData.createList(owner, "cached", 3);
+    }
+
+    @Test
+    void unchangedListsAreAnsweredWithoutSql() throws Exception {
+        assertNotModifiedWithoutSql("/todolists");
+        assertNotModifiedWithoutSql("/todolists/board");
+        assertNotModifiedWithoutSql("/todolists/summary");
+        assertNotModifiedWithoutSql("/todo-items/todolist-item/" + list.getId());
+    }
+
+    @Test
+    void toggleChangesTheETags() throws Exception {
+        String listsETag = eTag("/todolists/board");
+        String itemsETag = eTag("/todo-items/todolist-item/" + list.getId());
+
+        mockMvc.perform(patch("/todo-items/" + testData.firstItem(list).getId() + "/toggle-done").with(user(userName)))
+                .andExpect(status().isOk());
+
+        assertNotEquals(listsETag, eTag("/todolists/board"));
+        assertNotEquals(itemsETag, eTag("/todo-items/todolist-item/" + list.getId()));
+        mockMvc.perform(get("/todolists/board").with(user(userName)).header(HttpHeaders.IF_NONE_MATCH, listsETag))
+                .andExpect(status().isOk());
+    }
+
+    private void assertNotModifiedWithoutSql(String path) throws Exception {
+        String eTag = eTag(path);
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(get(path).with(user(userName)).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified());
+            assertEquals(0, stats.getStatements(), () -> path + " ran SQL for a 304");
+        }
+    }
+
+    private String eTag(String path) throws Exception {
+        return mockMvc.perform(get(path).with(user(userName)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
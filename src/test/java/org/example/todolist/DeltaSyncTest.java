@@ -0,0 +1,136 @@
+package org.example.todolist;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ChangeSetDto;
+import dto.ToDoListItemDto;
+import model.ToDoListEntity;
+import model.ToDoListItemEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import web.ToDoListApplication;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Delta sync through GET /todolists/changes: after a few writes, a sync from the previous
+ * token returns exactly the changed rows and tombstones, and nothing once caught up.
+ * Writes go through the endpoints, since only the service layer records changes.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class DeltaSyncTest {
+
+    private static final int ITEMS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+    private ToDoListEntity list;
+    private ToDoListEntity otherList;
+
+    @BeforeEach
+    void createLists() {
+        UserEntity owner = testData.createUser("sync");
+        userName = owner.getUserName();
+        list = testData.createList(owner, "synced", ITEMS);
+        otherList = testData.createList(owner, "other", ITEMS);
+    }
+
+    @Test
+    void syncWithoutATokenReturnsEverything() throws Exception {
+        ChangeSetDto changes = sync(null);
+
+        assertTrue(changes.isFull());
+        assertEquals(2, changes.getLists().size());
+        assertEquals(ITEMS, changes.getItems().get(list.getId()).size());
+        assertEquals(ITEMS, changes.getItems().get(otherList.getId()).size());
+    }
+
+    @Test
+    void syncReturnsOnlyWhatChangedSinceTheToken() throws Exception {
+        long token = sync(null).getSyncToken();
+        List<ToDoListItemEntity> items = testData.items(list);
+        Long toggled = items.get(0).getId();
+        Long deleted = items.get(1).getId();
+
+        perform(patch("/todo-items/" + toggled + "/toggle-done"));
+        perform(delete("/todo-items/" + deleted));
+        perform(post("/todo-items/" + list.getId()).contentType("application/json").content("{\"title\":\"added\"}"));
+
+        ChangeSetDto changes = sync(token);
+        assertFalse(changes.isFull());
+        assertTrue(changes.getSyncToken() > token);
+        assertTrue(changes.getLists().isEmpty());
+        assertEquals(Set.of(list.getId()), changes.getItems().keySet());
+        Set<String> titles = changes.getItems().get(list.getId()).stream()
+                .map(ToDoListItemDto::getTitle).collect(Collectors.toSet());
+        assertEquals(Set.of("item 0", "added"), titles);
+        assertEquals(List.of(deleted), changes.getDeletedItemIds());
+
+        ChangeSetDto caughtUp = sync(changes.getSyncToken());
+        assertEquals(changes.getSyncToken(), caughtUp.getSyncToken());
+        assertTrue(caughtUp.getItems().isEmpty());
+        assertTrue(caughtUp.getDeletedItemIds().isEmpty());
+    }
+
+    @Test
+    void deletedListIsATombstone() throws Exception {
+        long token = sync(null).getSyncToken();
+
+        perform(delete("/todolists/" + otherList.getId()));
+
+        ChangeSetDto changes = sync(token);
+        assertEquals(List.of(otherList.getId()), changes.getDeletedListIds());
+        assertTrue(changes.getItems().isEmpty());
+    }
+
+    @Test
+    void tokenAheadOfTheServerGetsEverything() throws Exception {
+        ChangeSetDto changes = sync(sync(null).getSyncToken() + 1000);
+
+        assertTrue(changes.isFull());
+        assertEquals(2, changes.getLists().size());
+    }
+
+    private ChangeSetDto sync(Long since) throws Exception {
+        MockHttpServletRequestBuilder request = get("/todolists/changes").with(user(userName));
+        if (since != null) {
+            request.param("since", since.toString());
+        }
+        String body = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, ChangeSetDto.class);
+    }
+
+    private void perform(MockHttpServletRequestBuilder request) throws Exception {
+        mockMvc.perform(request.with(user(userName))).andExpect(status().is2xxSuccessful());
+    }
+}
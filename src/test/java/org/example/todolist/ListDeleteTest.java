@@ -0,0 +1,104 @@
+package org.example.todolist;
+
+import aspect.QueryStats;
+import model.ToDoListEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import repository.ToDoListRepository;
+import web.ToDoListApplication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Deleting lists with set-based statements: the statements do not depend on how many
+ * items, or how many lists, are deleted, and the items go with their list.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class ListDeleteTest {
+
+    private static final int LARGE = 2000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private ToDoListRepository toDoListRepository;
+
+    private UserEntity owner;
+
+    @BeforeEach
+    void createUser() {
+        owner = testData.createUser("delete");
+    }
+
+    @Test
+    void deletingAListCostsTheSameForOneItemOrThousands() throws Exception {
+        ToDoListEntity small = testData.createList(owner, "small", 1);
+        ToDoListEntity large = testData.createList(owner, "large", LARGE);
+
+        long one = perform(delete("/todolists/" + small.getId()).with(user(owner.getUserName())));
+        long thousands = perform(delete("/todolists/" + large.getId()).with(user(owner.getUserName())));
+
+        assertEquals(one, thousands);
+        assertTrue(testData.items(large).isEmpty());
+        assertTrue(toDoListRepository.findById(large.getId()).isEmpty());
+    }
+
+    @Test
+    void deletingAllListsCostsTheSameForOneListOrMany() throws Exception {
+        testData.createList(owner, "only", 1);
+        UserEntity many = testData.createUser("delete-many");
+        for (int i = 0; i < 10; i++) {
+            testData.createList(many, "list " + i, 200);
+        }
+
+        long one = perform(delete("/todolists").with(user(owner.getUserName())));
+        long ten;
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(delete("/todolists").with(user(many.getUserName())))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("10"));
+            ten = stats.getStatements();
+        }
+
+        assertEquals(one, ten);
+        assertTrue(toDoListRepository.findIdsByUserEntity_Id(many.getId()).isEmpty());
+    }
+
+    @Test
+    void missingListIsNotFound() throws Exception {
+        mockMvc.perform(delete("/todolists/" + Long.MAX_VALUE).with(user(owner.getUserName())))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Perform a request that must succeed.
+     *
+     * @return the number of statements it ran
+     */
+    private long perform(RequestBuilder request) throws Exception {
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(request).andExpect(status().isOk());
+            return stats.getStatements();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.todolist;
+
+import aspect.LogAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.ActiveProfiles;
+import web.ToDoListApplication;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The timing aspect called from many threads at once: every call and every error must be
+ * counted, and the periodic report writes one line per method and then starts over. The
+ * calls go through join points of a method of this class, so no other caller shares them.
+ */
+// The scheduled report must not reset the timings while a test is counting them
+@SpringBootTest(classes = ToDoListApplication.class, properties = "todolist.timing.report-interval=3600000")
+@ActiveProfiles("test")
+@ExtendWith(OutputCaptureExtension.class)
+class LogAspectTest {
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 5000;
+
+    @Autowired
+    private LogAspect logAspect;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentCallsAreAllCountedAndReportedOnce(CapturedOutput output) throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint("timed");
+        when(joinPoint.proceed()).thenReturn("done");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < CALLS_PER_THREAD; j++) {
+                        assertEquals("done", proceed(joinPoint));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(THREADS * CALLS_PER_THREAD, meterRegistry.get("todolist.method").tag("method", "timed").timer().count());
+        logAspect.report();
+        assertTrue(output.getOut().contains("LogAspectTest.timed calls=" + THREADS * CALLS_PER_THREAD + " "), output::getOut);
+
+        // The report started the method over, so it is left out until it is called again
+        int length = output.getOut().length();
+        logAspect.report();
+        assertFalse(output.getOut().substring(length).contains("LogAspectTest.timed"));
+    }
+
+    @Test
+    void errorsAreCountedByTypeAndRethrown(CapturedOutput output) throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint("failing");
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("broken"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> logAspect.logAround(joinPoint));
+        }
+
+        assertEquals(3, meterRegistry.get("todolist.method.errors").tag("method", "failing")
+                .tag("exception", "IllegalStateException").counter().count());
+        assertTrue(output.getOut().contains("LogAspectTest.failing failed: broken"));
+        logAspect.report();
+        assertTrue(output.getOut().lines().anyMatch(line -> line.contains("LogAspectTest.failing calls=3 ")
+                && line.endsWith("errors=3")), output::getOut);
+    }
+
+    private Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return logAspect.logAround(joinPoint);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static ProceedingJoinPoint joinPoint(String methodName) throws NoSuchMethodException {
+        Method method = LogAspectTest.class.getDeclaredMethod(methodName);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        return joinPoint;
+    }
+
+    // Methods the join points stand for
+    private static void timed() {
+    }
+
+    private static void failing() {
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.todolist;
+
+import model.ToDoListEntity;
+import model.ToDoListItemEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ids allocated in blocks from the table-backed sequences: concurrent writers never get
+ * the same id, and the sequence table moves by whole blocks rather than once per insert.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@ActiveProfiles("test")
+@Import(TestData.class)
+class PooledIdTest {
+
+    private static final int BLOCK_SIZE = 100; // todolist.id.block_size
+    private static final int WRITERS = 8;
+    private static final int LISTS_PER_WRITER = 10;
+    private static final int ITEMS_PER_LIST = 30;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentWritersGetUniqueIds() throws Exception {
+        UserEntity owner = testData.createUser("ids");
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<List<Long>>> writers = new ArrayList<>();
+        try {
+            for (int i = 0; i < WRITERS; i++) {
+                writers.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int j = 0; j < LISTS_PER_WRITER; j++) {
+                        ToDoListEntity list = testData.createList(owner, "list " + j, ITEMS_PER_LIST);
+                        ids.addAll(testData.items(list).stream().map(ToDoListItemEntity::getId).toList());
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<Long> unique = new HashSet<>();
+            int total = 0;
+            for (Future<List<Long>> writer : writers) {
+                List<Long> ids = writer.get();
+                unique.addAll(ids);
+                total += ids.size();
+            }
+            assertEquals(WRITERS * LISTS_PER_WRITER * ITEMS_PER_LIST, total);
+            assertEquals(total, unique.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sequenceMovesByWholeBlocks() {
+        UserEntity owner = testData.createUser("ids-block");
+        long before = nextItemId();
+
+        testData.createList(owner, "block", 250);
+
+        // 250 ids need at most three blocks; one bump per insert would move it by 250
+        long moved = nextItemId() - before;
+        assertEquals(0, moved % BLOCK_SIZE, () -> "moved by " + moved);
+        assertTrue(moved <= 3 * BLOCK_SIZE, () -> "moved by " + moved);
+    }
+
+    private long nextItemId() {
+        return jdbcTemplate.queryForObject("select next_val from to_do_list_item_entity_seq", Long.class);
+    }
+}
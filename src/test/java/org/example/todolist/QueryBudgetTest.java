@@ -0,0 +1,100 @@
+package org.example.todolist;
+
+import aspect.QueryStats;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import web.ToDoListApplication;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets of the list and board handlers, asserted through QueryStats.
+ * The user has many lists and items, so a lazily loaded collection in a loop
+ * shows up as a repeated statement, and the board must cost as much as for a
+ * user with a single list.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class QueryBudgetTest {
+
+    private static final int LISTS = 20;
+    private static final int ITEMS_PER_LIST = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+
+    @BeforeEach
+    void createLists() {
+        UserEntity owner = testData.createUser("budget");
+        userName = owner.getUserName();
+        for (int i = 0; i < LISTS; i++) {
+            testData.createList(owner, "list " + i, ITEMS_PER_LIST);
+        }
+    }
+
+    @Test
+    void listsStayWithinBudget() throws Exception {
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(get("/todolists").with(user(userName)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists("X-SQL-Statements"));
+
+            stats.assertStatementsAtMost(2).assertNoRepeatedStatement(2);
+        }
+    }
+
+    @Test
+    void boardLoadsItemsWithoutOneQueryPerList() throws Exception {
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(get("/todolists/board").with(user(userName)))
+                    .andExpect(status().isOk());
+
+            stats.assertNoRepeatedStatement(3);
+        }
+    }
+
+    @Test
+    void boardReturnsEveryItemWithAsManyStatementsAsASingleList() throws Exception {
+        UserEntity single = testData.createUser("budget-single");
+        testData.createList(single, "only", ITEMS_PER_LIST);
+
+        long singleList = boardStatements(single.getUserName());
+        long manyLists;
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(get("/todolists/board").with(user(userName)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(LISTS))
+                    .andExpect(jsonPath("$[*].items.length()").value(everyItem(is(ITEMS_PER_LIST))));
+            manyLists = stats.getStatements();
+        }
+        assertEquals(singleList, manyLists);
+    }
+
+    private long boardStatements(String userName) throws Exception {
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(get("/todolists/board").with(user(userName))).andExpect(status().isOk());
+            return stats.getStatements();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.todolist;
+
+import aspect.QueryStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The QueryStats scope and its assertion API, fed with statements by hand.
+ */
+class QueryStatsTest {
+
+    @Test
+    void budgetPassesUpToItsLimit() {
+        try (QueryStats stats = QueryStats.start()) {
+            stats.recordStatement("select * from todo_list where user_id = ?", 1_000);
+            stats.recordStatement("select * from todo_list_item where todolist_id = ?", 1_000);
+
+            assertSame(stats, stats.assertStatementsAtMost(2));
+            AssertionError error = assertThrows(AssertionError.class, () -> stats.assertStatementsAtMost(1));
+            assertTrue(error.getMessage().contains("at most 1"));
+        }
+    }
+
+    @Test
+    void statementsDifferingOnlyInLiteralsShareAShape() {
+        try (QueryStats stats = QueryStats.start()) {
+            stats.recordStatement("select * from todo_list_item where todolist_id = 1", 0);
+            stats.recordStatement("select * from todo_list_item where todolist_id = 22", 0);
+            stats.recordStatement("select * from todo_list_item where todolist_id = 333", 0);
+            stats.recordStatement("select * from user where user_name = 'a'", 0);
+
+            assertEquals(3, stats.getMostRepeated().getValue());
+            stats.assertNoRepeatedStatement(4);
+            AssertionError error = assertThrows(AssertionError.class, () -> stats.assertNoRepeatedStatement(3));
+            assertTrue(error.getMessage().contains("todolist_id = ?"));
+        }
+    }
+
+    @Test
+    void parameterListsOfAnyLengthShareAShape() {
+        try (QueryStats stats = QueryStats.start()) {
+            stats.recordStatement("delete from todo_list_item where id in (?)", 0);
+            stats.recordStatement("delete from todo_list_item where id in (?, ?, ?)", 0);
+
+            assertEquals(2, stats.getMostRepeated().getValue());
+        }
+    }
+
+    @Test
+    void rowsAndTimesAreSummed() {
+        try (QueryStats stats = QueryStats.start()) {
+            stats.recordStatement("select 1", 1_000);
+            stats.recordRows(10, 500);
+            stats.recordConnection(2_000);
+
+            assertEquals(1, stats.getStatements());
+            assertEquals(10, stats.getRows());
+            assertEquals(1_500, stats.getJdbcNanos());
+            assertEquals(2_000, stats.getConnectionNanos());
+        }
+    }
+
+    @Test
+    void nestedScopesAlsoRecordIntoTheirParent() {
+        try (QueryStats outer = QueryStats.start()) {
+            outer.recordStatement("select 1", 0);
+            try (QueryStats inner = QueryStats.start()) {
+                assertSame(inner, QueryStats.current());
+                QueryStats.current().recordStatement("select 2", 0);
+
+                assertEquals(1, inner.getStatements());
+            }
+            assertSame(outer, QueryStats.current());
+            assertEquals(2, outer.getStatements());
+        }
+        assertNull(QueryStats.current());
+    }
+
+    @Test
+    void emptyScopeHasNoRepeatedStatement() {
+        try (QueryStats stats = QueryStats.start()) {
+            assertNull(stats.getMostRepeated());
+            stats.assertStatementsAtMost(0).assertNoRepeatedStatement(1);
+        }
+    }
+}
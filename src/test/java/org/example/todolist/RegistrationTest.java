@@ -0,0 +1,90 @@
+package org.example.todolist;
+
+import dto.RequestDto;
+import exception.ExistException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import repository.UserRepository;
+import service.RegisterService;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Registration relying on the unique user_name index: a taken name answers 409, and of
+ * several registrations of the same name racing each other exactly one succeeds.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RegistrationTest {
+
+    private static final int RACERS = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RegisterService registerService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void takenNameIsAConflict() throws Exception {
+        String body = "{\"userName\":\"register-" + UUID.randomUUID() + "\",\"password\":\"secret\"}";
+
+        mockMvc.perform(post("/register").contentType("application/json").content(body))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/register").contentType("application/json").content(body))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void racingRegistrationsOfOneNameCreateOneUser() throws Exception {
+        String userName = "register-race-" + UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(RACERS);
+        List<Future<?>> racers = new ArrayList<>();
+        try {
+            for (int i = 0; i < RACERS; i++) {
+                racers.add(executor.submit(() -> {
+                    RequestDto request = new RequestDto();
+                    request.setUserName(userName);
+                    request.setPassword("secret");
+                    registerService.register(request);
+                    return null;
+                }));
+            }
+
+            int succeeded = 0;
+            for (Future<?> racer : racers) {
+                try {
+                    racer.get();
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(ExistException.class, e.getCause());
+                }
+            }
+            assertEquals(1, succeeded);
+            assertTrue(userRepository.findByUserName(userName).isPresent());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
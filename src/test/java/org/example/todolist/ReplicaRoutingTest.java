@@ -0,0 +1,122 @@
+package org.example.todolist;
+
+import dto.ToDoListDto;
+import dto.ToDoListItemRowDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import model.ToDoListEntity;
+import model.UserEntity;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import service.ToDoListService;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Read routing between two database instances: the H2 primary of the test profile and a
+ * second H2 database standing in for a replica that has not caught up. The replica holds
+ * the same user with different lists, so every read shows which database served it, and
+ * the todolist.datasource.reads counters show where each transaction went.
+ */
+@SpringBootTest(classes = ToDoListApplication.class,
+        properties = "todolist.datasource.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL)
+@ActiveProfiles("test")
+@Import(TestData.class)
+class ReplicaRoutingTest {
+
+    // The replica URLs are a comma separated list, so the URL cannot hold one
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate REPLICA = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private ToDoListService toDoListService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+
+    @BeforeAll
+    static void createReplica() {
+        Flyway.configure().dataSource(REPLICA.getDataSource()).locations("classpath:db/migration").load().migrate();
+    }
+
+    @BeforeEach
+    void createUser() {
+        UserEntity user = testData.createUser("replica");
+        userName = user.getUserName();
+        ToDoListEntity list = testData.createList(user, "on primary", 1);
+
+        // The replica has the user, but not yet the list written above
+        REPLICA.update("insert into user (id, user_name, password) values (?, ?, ?)", user.getId(), userName, "unused");
+        REPLICA.update("insert into todo_list (id, title, user_id) values (?, ?, ?)", list.getId() + 1_000_000, "on replica", user.getId());
+        REPLICA.update("insert into todo_list_item (id, title, is_done, todolist_id) values (?, ?, false, ?)",
+                list.getId() + 1_000_000, "replica item", list.getId() + 1_000_000);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readsAnsweredWithAnETagGoToThePrimary() throws Exception {
+        double replicaReads = reads("replica");
+
+        assertEquals("on primary", toDoListService.getAllToDoListByUsername(userName).get(0).getTitle());
+        assertEquals("on primary", toDoListService.getToDoListPageByUsername(userName, null, 10).getContent().get(0).getTitle());
+        assertEquals("on primary", toDoListService.getBoardByUsername(userName).get(0).getTitle());
+        assertEquals("on primary", toDoListService.getSummaryByUsername(userName).get(0).getTitle());
+        assertEquals(replicaReads, reads("replica"));
+    }
+
+    @Test
+    void otherReadOnlyTransactionsGoToTheReplica() throws Exception {
+        double replicaReads = reads("replica");
+
+        assertEquals(List.of("replica item"), exportedTitles());
+        assertTrue(reads("replica") > replicaReads);
+    }
+
+    @Test
+    void userReadsFromThePrimaryAfterTheirOwnWrite() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userName, null, List.of()));
+        ToDoListDto list = new ToDoListDto();
+        list.setTitle("written");
+        toDoListService.createToDoList(list, userName);
+        double replicaReads = reads("replica");
+
+        assertEquals(List.of("item 0"), exportedTitles());
+        assertEquals(replicaReads, reads("replica"));
+    }
+
+    private List<String> exportedTitles() throws Exception {
+        List<String> titles = new ArrayList<>();
+        toDoListService.exportByUsername(userName, (ToDoListItemRowDto row) -> titles.add(row.getTitle()));
+        return titles;
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("todolist.datasource.reads").tag("target", target).counter().count();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.todolist;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import web.ToDoListApplication;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Flyway migrations: the hot repository queries must be planned on the indexes of
+ * V2 and V3, and a database created before the migrations existed, adopted at version 1,
+ * must end up with the same schema as one created from scratch.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@ActiveProfiles("test")
+class SchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void userLookupUsesTheUniqueUserNameIndex() {
+        assertPlanUses("select id, password from user where user_name = 'x'", "UX_USER_USER_NAME");
+    }
+
+    @Test
+    void listLookupUsesTheUserTitleIndex() {
+        assertPlanUses("select id from todo_list where user_id = 1 and title = 'x'", "IX_TODO_LIST_USER_ID_TITLE");
+    }
+
+    @Test
+    void completedItemsUseTheListDoneIndex() {
+        assertPlanUses("select id from todo_list_item where todolist_id = 1 and is_done = true",
+                "IX_TODO_LIST_ITEM_TODOLIST_ID_IS_DONE");
+    }
+
+    @Test
+    void changesSinceUseTheUserSeqIndex() {
+        assertPlanUses("select entity_id from todo_change where user_id = 1 and seq > 5 order by seq",
+                "IX_TODO_CHANGE_USER_ID_SEQ");
+    }
+
+    @Test
+    void adoptedDatabaseMatchesAFreshOne() {
+        JdbcTemplate fresh = database();
+        migrate(fresh);
+
+        JdbcTemplate adopted = database();
+        adopted.execute("runscript from 'classpath:db/pre-migration-schema.sql'");
+        migrate(adopted);
+
+        assertEquals(columns(fresh), columns(adopted));
+    }
+
+    private void assertPlanUses(String query, String index) {
+        String plan = jdbcTemplate.queryForObject("explain " + query, String.class);
+        assertTrue(plan.contains(index), () -> "expected " + index + " in plan:\n" + plan);
+    }
+
+    private static JdbcTemplate database() {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+
+    /**
+     * Migrate with the settings of application.properties.
+     */
+    private static void migrate(JdbcTemplate database) {
+        Flyway.configure()
+                .dataSource(database.getDataSource())
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    private static List<String> columns(JdbcTemplate database) {
+        return database.queryForList("select table_name || '.' || column_name || ' ' || data_type || ' ' || is_nullable "
+                + "from information_schema.columns where table_schema = 'PUBLIC' and table_name <> 'flyway_schema_history' "
+                + "order by table_name, column_name", String.class);
+    }
+}
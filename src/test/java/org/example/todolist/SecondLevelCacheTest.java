@@ -0,0 +1,116 @@
+package org.example.todolist;
+
+import aspect.QueryStats;
+import jakarta.persistence.EntityManagerFactory;
+import model.ToDoListEntity;
+import model.UserEntity;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statements per request of steady-state traffic, with the second-level and query caches
+ * warm against the same traffic with every region emptied before each request, which is what
+ * a request costs without them. The traffic mixes list reads with item appends, which
+ * resolve the owner of their list through the cached findUserIdById query.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestData.class)
+class SecondLevelCacheTest {
+
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+    private Long listId;
+
+    @BeforeEach
+    void createLists() {
+        UserEntity owner = testData.createUser("l2");
+        userName = owner.getUserName();
+        ToDoListEntity list = testData.createList(owner, "list 0", 5);
+        listId = list.getId();
+        for (int i = 1; i < 10; i++) {
+            testData.createList(owner, "list " + i, 5);
+        }
+    }
+
+    @Test
+    void warmCachesAnswerListReadsWithoutSql() throws Exception {
+        runTraffic(false); // Warm-up
+        long cold = runTraffic(true);
+        runTraffic(false);
+        long warm = runTraffic(false);
+
+        int requests = ROUNDS * traffic().size();
+        System.out.printf("statements per request: %.2f without second-level caches, %.2f with them%n",
+                (double) cold / requests, (double) warm / requests);
+        assertTrue(warm < cold, () -> "warm " + warm + " vs cold " + cold);
+
+        // GET /todolists is answered from the query and entity regions alone
+        try (QueryStats stats = QueryStats.start()) {
+            mockMvc.perform(get("/todolists").with(user(userName))).andExpect(status().isOk());
+            assertEquals(0, stats.getStatements());
+        }
+    }
+
+    /**
+     * Run ROUNDS rounds of the traffic and count the statements.
+     *
+     * @param evict whether every region is emptied before each request
+     */
+    private long runTraffic(boolean evict) throws Exception {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        long statements = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            for (RequestBuilder request : traffic()) {
+                if (evict) {
+                    sessionFactory.getCache().evictAllRegions();
+                }
+                try (QueryStats stats = QueryStats.start()) {
+                    mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+                    statements += stats.getStatements();
+                }
+            }
+        }
+        return statements;
+    }
+
+    private List<RequestBuilder> traffic() {
+        List<RequestBuilder> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            requests.add(get("/todolists").with(user(userName)));
+        }
+        requests.add(post("/todo-items/" + listId).with(user(userName))
+                .contentType("application/json").content("{\"title\":\"appended\"}"));
+        return requests;
+    }
+}
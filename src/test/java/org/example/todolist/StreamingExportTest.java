@@ -0,0 +1,87 @@
+package org.example.todolist;
+
+import model.ToDoListEntity;
+import model.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import service.ToDoListItemService;
+import service.ToDoListService;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Item streaming and account export read keyset-paged batches, each in its own transaction,
+ * so the consumer writing to a possibly slow client never runs while a transaction holds a
+ * connection. The lists span several batches to check that no row is lost or repeated.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@ActiveProfiles("test")
+@Import(TestData.class)
+class StreamingExportTest {
+
+    private static final int ITEMS = 1200; // More than two batches
+
+    @Autowired
+    private ToDoListItemService toDoListItemService;
+
+    @Autowired
+    private ToDoListService toDoListService;
+
+    @Autowired
+    private TestData testData;
+
+    private String userName;
+    private ToDoListEntity list;
+
+    @BeforeEach
+    void createLists() {
+        UserEntity owner = testData.createUser("export");
+        userName = owner.getUserName();
+        list = testData.createList(owner, "first", ITEMS);
+        testData.createList(owner, "second", ITEMS);
+    }
+
+    @Test
+    void streamReadsEveryItemOutsideATransaction() {
+        List<Long> ids = new ArrayList<>();
+        toDoListItemService.streamAllToDoListItem(list.getId(), item -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            ids.add(item.getId());
+        });
+
+        assertEquals(ITEMS, ids.size());
+        assertIncreasing(ids);
+    }
+
+    @Test
+    void exportReadsEveryRowOutsideATransaction() throws Exception {
+        List<Long> listIds = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        toDoListService.exportByUsername(userName, row -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            listIds.add(row.getListId());
+            ids.add(row.getId());
+        });
+
+        assertEquals(2 * ITEMS, ids.size());
+        assertEquals(ITEMS, listIds.stream().filter(list.getId()::equals).count());
+        assertEquals(ids.size(), ids.stream().distinct().count());
+    }
+
+    private static void assertIncreasing(List<Long> ids) {
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.todolist;
+
+import model.ToDoListEntity;
+import model.ToDoListItemEntity;
+import model.UserEntity;
+import org.springframework.boot.test.context.TestComponent;
+import repository.ToDoListRepository;
+import repository.TodoListItemRepository;
+import repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fixtures shared by the integration tests: users with unique names, and lists with items,
+ * saved straight through the repositories. Tests pull it in with @Import(TestData.class).
+ */
+@TestComponent
+class TestData {
+
+    private final UserRepository userRepository;
+    private final ToDoListRepository toDoListRepository;
+    private final TodoListItemRepository todoListItemRepository;
+
+    TestData(UserRepository userRepository, ToDoListRepository toDoListRepository,
+             TodoListItemRepository todoListItemRepository) {
+        this.userRepository = userRepository;
+        this.toDoListRepository = toDoListRepository;
+        this.todoListItemRepository = todoListItemRepository;
+    }
+
+    /**
+     * Save a user whose name is the prefix followed by a random suffix, so tests sharing
+     * the database never collide. The password is not a valid hash; tests authenticate
+     * through the MockMvc user() post processor instead.
+     *
+     * @param prefix start of the user name
+     * @return the saved user
+     */
+    UserEntity createUser(String prefix) {
+        UserEntity user = new UserEntity();
+        user.setUserName(prefix + "-" + UUID.randomUUID());
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+
+    /**
+     * Save a list of the user holding the given number of items, titled "item 0" onwards.
+     *
+     * @param owner the owner of the list
+     * @param title the title of the list
+     * @param items the number of items
+     * @return the saved list
+     */
+    ToDoListEntity createList(UserEntity owner, String title, int items) {
+        ToDoListEntity list = new ToDoListEntity();
+        list.setTitle(title);
+        list.setUserEntity(owner);
+        toDoListRepository.save(list);
+
+        List<ToDoListItemEntity> entities = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            ToDoListItemEntity item = new ToDoListItemEntity();
+            item.setTitle("item " + i);
+            item.setToDoListEntity(list);
+            entities.add(item);
+        }
+        todoListItemRepository.saveAll(entities);
+        return list;
+    }
+
+    /**
+     * Load the first item of a list.
+     *
+     * @param list the list
+     * @return the item with the lowest id
+     */
+    ToDoListItemEntity firstItem(ToDoListEntity list) {
+        return items(list).get(0);
+    }
+
+    /**
+     * Load the items of a list.
+     *
+     * @param list the list
+     * @return the items ordered by id
+     */
+    List<ToDoListItemEntity> items(ToDoListEntity list) {
+        return todoListItemRepository.findByToDoListEntity_Id(list.getId()).stream()
+                .sorted(Comparator.comparing(ToDoListItemEntity::getId))
+                .toList();
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.todolist;
+
+import cache.ToDoListCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ToDoListDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The Redis list cache against an in-memory fake of Redis. No Redis server or Lua runtime
+ * is available to the build, so the fake carries out the FILL and EVICT scripts in Java,
+ * following the Lua of ToDoListCache; the tests cover the generation protocol around them
+ * and the fallback to the loader while Redis is unreachable.
+ */
+class ToDoListCacheTest {
+
+    private final FakeRedis redis = new FakeRedis();
+    private final ToDoListCache cache = new ToDoListCache(new ObjectMapper(), provider(redis),
+            new SimpleMeterRegistry(), Duration.ofMinutes(30), true);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void missIsLoadedOnceAndThenServedFromRedis() {
+        assertEquals("a", cache.getLists(1L, loader("a")).get(0).getTitle());
+        assertEquals("a", cache.getLists(1L, loader("b")).get(0).getTitle());
+        assertEquals(1, loads.get());
+        assertTrue(redis.values.containsKey("todolist:lists:1"));
+    }
+
+    @Test
+    void evictionWaitsForTheCommit() {
+        cache.getLists(1L, loader("a"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evictLists(1L);
+        assertTrue(redis.values.containsKey("todolist:lists:1"));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertFalse(redis.values.containsKey("todolist:lists:1"));
+        assertEquals("b", cache.getLists(1L, loader("b")).get(0).getTitle());
+    }
+
+    @Test
+    void loadRacingAnEvictionIsNotStored() {
+        // A write commits and evicts while the reader is loading the state from before it
+        List<ToDoListDto> stale = cache.getLists(1L, () -> {
+            cache.evictLists(1L);
+            return loader("stale").get();
+        });
+
+        assertEquals("stale", stale.get(0).getTitle());
+        assertFalse(redis.values.containsKey("todolist:lists:1"));
+        assertEquals("fresh", cache.getLists(1L, loader("fresh")).get(0).getTitle());
+        assertEquals("fresh", cache.getLists(1L, loader("other")).get(0).getTitle());
+    }
+
+    @Test
+    void unavailableRedisFallsBackToTheLoader() {
+        redis.down = true;
+
+        assertEquals("a", cache.getLists(1L, loader("a")).get(0).getTitle());
+        assertEquals("b", cache.getLists(1L, loader("b")).get(0).getTitle());
+        cache.evictLists(1L);
+        assertEquals(2, loads.get());
+
+        // Nothing loaded while Redis was down was stored
+        redis.down = false;
+        assertEquals("c", cache.getLists(1L, loader("c")).get(0).getTitle());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        ToDoListCache disabled = new ToDoListCache(new ObjectMapper(), provider(redis),
+                new SimpleMeterRegistry(), Duration.ofMinutes(30), false);
+
+        disabled.getLists(1L, loader("a"));
+        disabled.getLists(1L, loader("a"));
+        assertEquals(2, loads.get());
+        assertTrue(redis.values.isEmpty());
+    }
+
+    private Supplier<List<ToDoListDto>> loader(String title) {
+        return () -> {
+            loads.incrementAndGet();
+            ToDoListDto list = new ToDoListDto();
+            list.setTitle(title);
+            return List.of(list);
+        };
+    }
+
+    private static ObjectProvider<StringRedisTemplate> provider(StringRedisTemplate template) {
+        return new StaticListableBeanFactory(Map.of("redisTemplate", template)).getBeanProvider(StringRedisTemplate.class);
+    }
+
+    /**
+     * StringRedisTemplate over a map, with MGET and the two scripts of ToDoListCache.
+     * Setting down makes every call fail as an unreachable server does. Expiry is not
+     * modelled; the tests run well inside the TTLs.
+     */
+    private static class FakeRedis extends StringRedisTemplate {
+
+        private final Map<String, String> values = new HashMap<>();
+        private volatile boolean down;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            ValueOperations<String, String> operations = mock(ValueOperations.class);
+            when(operations.multiGet(anyCollection())).thenAnswer(invocation -> {
+                checkUp();
+                return ((Collection<String>) invocation.getArgument(0)).stream().map(values::get).toList();
+            });
+            return operations;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            checkUp();
+            String key = keys.get(0);
+            String generationKey = keys.get(1);
+            if (script.getScriptAsString().contains("INCR")) { // EVICT
+                values.merge(generationKey, "1", (generation, one) -> Long.toString(Long.parseLong(generation) + 1));
+                return (T) Long.valueOf(values.remove(key) == null ? 0 : 1);
+            }
+            // FILL
+            if (!values.getOrDefault(generationKey, "0").equals(args[0])) {
+                return (T) Long.valueOf(0);
+            }
+            values.put(key, (String) args[1]);
+            return (T) Long.valueOf(1);
+        }
+
+        private void checkUp() {
+            if (down) {
+                throw new RedisConnectionFailureException("connection refused");
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.todolist;
+
+import dto.ToDoListItemDto;
+import exception.ConflictException;
+import model.ToDoListEntity;
+import model.ToDoListItemEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import repository.TodoListItemRepository;
+import service.ToDoListItemService;
+import web.ToDoListApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Concurrent toggles of one item through ToDoListItemService.updateIsDone.
+ * Unconditional toggles must never be lost, and toggles sent with the same
+ * expected version must let exactly one of them through.
+ */
+@SpringBootTest(classes = ToDoListApplication.class)
+@ActiveProfiles("test")
+@Import(TestData.class)
+class ToggleContentionTest {
+
+    private static final int THREADS = 8;
+    private static final int TOGGLES_PER_THREAD = 25;
+
+    @Autowired
+    private ToDoListItemService toDoListItemService;
+
+    @Autowired
+    private TodoListItemRepository todoListItemRepository;
+
+    @Autowired
+    private TestData testData;
+
+    private Long itemId;
+
+    @BeforeEach
+    void createItem() {
+        ToDoListEntity list = testData.createList(testData.createUser("toggle"), "contention", 1);
+        itemId = testData.firstItem(list).getId();
+    }
+
+    @Test
+    void unconditionalTogglesAreNeverLost() throws Exception {
+        List<Object> results = runConcurrently(() -> {
+            for (int i = 0; i < TOGGLES_PER_THREAD; i++) {
+                toDoListItemService.updateIsDone(itemId, null);
+            }
+            return null;
+        });
+        results.forEach(result -> assertFalse(result instanceof Throwable, () -> "toggle failed: " + result));
+
+        ToDoListItemEntity item = todoListItemRepository.findById(itemId).orElseThrow();
+        assertEquals(THREADS * TOGGLES_PER_THREAD, item.getVersion());
+        assertEquals((THREADS * TOGGLES_PER_THREAD) % 2 == 1, item.getIsDone());
+    }
+
+    @Test
+    void togglesWithTheSameVersionLetOnlyOneThrough() throws Exception {
+        Long version = todoListItemRepository.findById(itemId).orElseThrow().getVersion();
+
+        List<Object> results = runConcurrently(() -> toDoListItemService.updateIsDone(itemId, version));
+
+        int applied = 0;
+        for (Object result : results) {
+            if (result instanceof ToDoListItemDto dto) {
+                applied++;
+                assertEquals(true, dto.getIsDone());
+                assertEquals(version + 1, dto.getVersion());
+            } else {
+                assertInstanceOf(ConflictException.class, result);
+            }
+        }
+        assertEquals(1, applied);
+        assertEquals(version + 1, todoListItemRepository.findById(itemId).orElseThrow().getVersion());
+    }
+
+    /**
+     * Start the task on THREADS threads at the same moment and collect what each returned or threw.
+     */
+    private List<Object> runConcurrently(Callable<Object> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return task.call();
+                    } catch (Exception e) {
+                        return e;
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
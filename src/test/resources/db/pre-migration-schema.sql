@@ -0,0 +1,35 @@
+-- Schema of a database created by hibernate.ddl-auto=update before the Flyway migrations
+-- existed. Kept apart from V1 so that a change to V1 cannot change what adoption starts from.
+
+create table user (
+    id        bigint       not null,
+    user_name varchar(255),
+    password  varchar(255),
+    primary key (id)
+) engine = InnoDB;
+
+create table todo_list (
+    id      bigint       not null,
+    title   varchar(255),
+    user_id bigint,
+    primary key (id),
+    constraint fk_todo_list_user foreign key (user_id) references user (id)
+) engine = InnoDB;
+
+create table todo_list_item (
+    id          bigint       not null,
+    title       varchar(255),
+    is_done     bit          not null,
+    todolist_id bigint,
+    primary key (id),
+    constraint fk_todo_list_item_todo_list foreign key (todolist_id) references todo_list (id)
+) engine = InnoDB;
+
+create table user_entity_seq (next_val bigint) engine = InnoDB;
+insert into user_entity_seq values (1);
+
+create table to_do_list_entity_seq (next_val bigint) engine = InnoDB;
+insert into to_do_list_entity_seq values (1);
+
+create table to_do_list_item_entity_seq (next_val bigint) engine = InnoDB;
+insert into to_do_list_item_entity_seq values (1);